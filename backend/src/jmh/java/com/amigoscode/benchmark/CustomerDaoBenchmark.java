@@ -0,0 +1,81 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.customer.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerDaoBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int LOOKUP_SIZE = 100;
+
+    @Benchmark
+    public Optional<Customer> selectCustomerById(CustomerDaoState state) {
+        return state.customerDAO.selectCustomerById(state.randomId());
+    }
+
+    /**
+     * {@value #LOOKUP_SIZE} customers looked up one by one, as a dashboard resolving ids would without
+     * the multi-get; compare with {@link #selectCustomersByIds}.
+     */
+    @Benchmark
+    public int selectCustomerByIdRepeatedly(CustomerDaoState state) {
+        int found = 0;
+        for (Long id : state.randomIds(LOOKUP_SIZE)) {
+            if (state.customerDAO.selectCustomerById(id).isPresent())
+                found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<Customer> selectCustomersByIds(CustomerDaoState state) {
+        return state.customerDAO.selectCustomersByIds(state.randomIds(LOOKUP_SIZE));
+    }
+
+    @Benchmark
+    public List<Customer> selectCustomerPage(CustomerDaoState state) {
+        return state.customerDAO.selectCustomerPage(state.randomId(), 50);
+    }
+
+    @Benchmark
+    public boolean existsPersonWithEmail(CustomerDaoState state) {
+        return state.customerDAO.existsPersonWithEmail(state.randomEmail());
+    }
+
+    @Benchmark
+    public Long insertCustomer(CustomerDaoState state) {
+        return state.customerDAO.insertCustomer(state.newCustomer());
+    }
+
+    @Benchmark
+    public int insertCustomers(CustomerDaoState state) {
+        List<Customer> customers = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++)
+            customers.add(state.newCustomer());
+        return state.customerDAO.insertCustomers(customers);
+    }
+
+    @Benchmark
+    public void updateCustomer(CustomerDaoState state) {
+        Customer update = new Customer();
+        update.setId(state.randomId());
+        update.setName(state.uniqueName());
+        state.customerDAO.updateCustomer(update);
+    }
+}
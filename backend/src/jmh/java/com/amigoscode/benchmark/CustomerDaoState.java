@@ -0,0 +1,143 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.AbstractTestcontainers;
+import com.amigoscode.Main;
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerDAO;
+import com.amigoscode.customer.CustomerListDataAccessService;
+import com.amigoscode.customer.CustomerService;
+import com.amigoscode.customer.Gender;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One {@link CustomerDAO} implementation per trial, seeded with {@value #SEED_SIZE} customers.
+ * "jdbc" and "jpa" run against the Testcontainers Postgres of {@link AbstractTestcontainers}
+ * inside a web-less application context, "list" needs neither.
+ */
+@State(Scope.Benchmark)
+public class CustomerDaoState extends AbstractTestcontainers {
+
+    static final int SEED_SIZE = 1_000;
+
+    @Param({"list", "jdbc", "jpa"})
+    public String implementation;
+
+    /**
+     * Spring profile of the application context, to compare the default settings with the tuned
+     * pool, statement cache and batching of "prod". Has no effect on "list".
+     */
+    @Param({"default", "prod"})
+    public String profile;
+
+    /**
+     * Rows in the customer table. Beyond the {@value #SEED_SIZE} customers inserted through the DAO, the
+     * table is filled with generated rows in bulk, e.g. {@code -p rows=50000000} to see how the
+     * partitioned table holds up at scale. Has no effect on "list".
+     */
+    @Param({"1000"})
+    public int rows;
+
+    CustomerDAO customerDAO;
+    CustomerService customerService;
+
+    private ConfigurableApplicationContext context;
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final String runId = Long.toString(System.nanoTime(), 36);
+    private long[] ids;
+    private String[] emails;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (implementation.equals("list")) {
+            customerDAO = new CustomerListDataAccessService();
+        } else {
+            POSTGRE_SQL_CONTAINER.start();
+            beforeAll();
+            context = new SpringApplicationBuilder(Main.class)
+                    .web(WebApplicationType.NONE)
+                    .profiles(profile)
+                    .properties(
+                            "spring.datasource.url=" + POSTGRE_SQL_CONTAINER.getJdbcUrl(),
+                            "spring.datasource.username=" + POSTGRE_SQL_CONTAINER.getUsername(),
+                            "spring.datasource.password=" + POSTGRE_SQL_CONTAINER.getPassword(),
+                            "spring.jpa.show-sql=false"
+                    )
+                    .run();
+            customerDAO = context.getBean(implementation, CustomerDAO.class);
+        }
+        customerService = new CustomerService(customerDAO);
+
+        List<Customer> seed = new ArrayList<>(SEED_SIZE);
+        for (int i = 0; i < SEED_SIZE; i++)
+            seed.add(newCustomer());
+        customerDAO.insertCustomers(seed);
+
+        List<Customer> stored = customerDAO.selectAllCustomers();
+        ids = stored.stream().mapToLong(Customer::getId).toArray();
+        emails = stored.stream().map(Customer::getEmail).toArray(String[]::new);
+
+        if (context != null && rows > SEED_SIZE)
+            fill(rows - SEED_SIZE);
+    }
+
+    private void fill(int count) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("""
+                INSERT INTO customer (name, email, age, gender)
+                SELECT 'fill ' || n, 'fill-' || ? || '-' || n || '@amigoscode.com', 18 + n % 60,
+                       CASE WHEN n % 2 = 0 THEN 'MALE' ELSE 'FEMALE' END
+                FROM generate_series(1, ?) AS n
+                """, runId, count);
+        jdbcTemplate.execute("VACUUM ANALYZE customer");
+        jdbcTemplate.execute("VACUUM ANALYZE customer_email");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+            POSTGRE_SQL_CONTAINER.stop();
+        }
+    }
+
+    Long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    List<Long> randomIds(int count) {
+        List<Long> randomIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            randomIds.add(randomId());
+        return randomIds;
+    }
+
+    String randomEmail() {
+        return emails[ThreadLocalRandom.current().nextInt(emails.length)];
+    }
+
+    String uniqueName() {
+        return "bench " + sequence.incrementAndGet();
+    }
+
+    String uniqueEmail() {
+        return "bench-" + runId + "-" + sequence.incrementAndGet() + "@amigoscode.com";
+    }
+
+    Customer newCustomer() {
+        return new Customer(uniqueName(), uniqueEmail(), 30, Gender.FEMALE);
+    }
+}
@@ -0,0 +1,126 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerProtobufHttpMessageConverter;
+import com.amigoscode.customer.Gender;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a page of 10k customers through the converter that serves each format, into a stream that only
+ * counts the bytes, so the numbers cover encoding alone. The payload size of each format is printed once
+ * per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CustomerEncodingBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+    private static final Type CUSTOMER_LIST = new ParameterizedTypeReference<List<Customer>>() {
+    }.getType();
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    public String format;
+
+    private GenericHttpMessageConverter<Object> converter;
+    private MediaType mediaType;
+    private List<Customer> customers;
+    private long payloadBytes;
+
+    @Setup
+    public void setUp() {
+        converter = switch (format) {
+            case "json" -> new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build());
+            case "smile" -> new MappingJackson2SmileHttpMessageConverter(
+                    Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build());
+            case "cbor" -> new MappingJackson2CborHttpMessageConverter(
+                    Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build());
+            case "protobuf" -> new CustomerProtobufHttpMessageConverter();
+            default -> throw new IllegalArgumentException(format);
+        };
+        mediaType = converter.getSupportedMediaTypes().get(0);
+
+        customers = new ArrayList<>(CUSTOMERS);
+        for (long id = 1; id <= CUSTOMERS; id++) {
+            customers.add(new Customer(id, "Alex " + id, "alex" + id + "@gmail.com", 19 + (int) (id % 50),
+                    id % 2 == 0 ? Gender.MALE : Gender.FEMALE));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void printPayloadSize() {
+        System.out.printf("%n%s: %d bytes for %d customers%n", format, payloadBytes, CUSTOMERS);
+    }
+
+    @Benchmark
+    public long writeCustomers() throws IOException {
+        CountingOutputMessage output = new CountingOutputMessage();
+        converter.write(customers, CUSTOMER_LIST, mediaType, output);
+        payloadBytes = output.body.count;
+        return payloadBytes;
+    }
+
+    private static final class CountingOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private final CountingOutputStream body = new CountingOutputStream();
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerDAO;
+import com.amigoscode.customer.CustomerListDataAccessService;
+import com.amigoscode.customer.CustomerMetricsInterceptor;
+import com.amigoscode.customer.CustomerService;
+import com.amigoscode.customer.Gender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link CustomerMetricsInterceptor} on the cheapest path there is: a lookup served by the
+ * in-memory DAO. {@code proxied} measures the AOP proxies alone, {@code instrumented} adds the
+ * timers, so the difference between the two is what the metrics cost per service call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class CustomerMetricsBenchmark {
+
+    private static final int CUSTOMERS = 1000;
+
+    @Param({"plain", "proxied", "instrumented"})
+    public String variant;
+
+    private CustomerService customerService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CustomerDAO customerDAO = new CustomerListDataAccessService();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customerDAO.insertCustomer(new Customer("customer-" + i, "customer-" + i + "@amigoscode.com", 30, Gender.MALE));
+        }
+        switch (variant) {
+            case "plain" -> customerService = new CustomerService(customerDAO);
+            case "proxied" -> {
+                MethodInterceptor passThrough = MethodInvocation::proceed;
+                CustomerDAO proxiedDAO = proxy(customerDAO, passThrough);
+                customerService = proxy(new CustomerService(proxiedDAO), passThrough);
+            }
+            case "instrumented" -> {
+                MeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+                CustomerDAO instrumentedDAO = proxy(customerDAO, CustomerMetricsInterceptor.forDao(() -> meterRegistry));
+                customerService = proxy(
+                        new CustomerService(instrumentedDAO), CustomerMetricsInterceptor.forService(() -> meterRegistry));
+            }
+            default -> throw new IllegalArgumentException(variant);
+        }
+    }
+
+    @Benchmark
+    public Customer getCustomer() {
+        return customerService.getCustomer(ThreadLocalRandom.current().nextLong(1, CUSTOMERS + 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, MethodInterceptor interceptor) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        return (T) factory.getProxy();
+    }
+}
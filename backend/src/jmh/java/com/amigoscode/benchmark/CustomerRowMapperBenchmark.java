@@ -0,0 +1,90 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerRowMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps in-memory rows, so the numbers cover the mapper alone and not the driver.
+ * {@code mapRowPerRow} does what {@code JdbcTemplate} does with the plain {@link CustomerRowMapper},
+ * {@code listExtractor} resolves the column positions once per result set.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CustomerRowMapperBenchmark {
+
+    private static final int ROWS = 100;
+
+    private final CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+    private CachedRowSet resultSet;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String[] columns = {"id", "name", "email", "age", "gender"};
+        int[] types = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.VARCHAR};
+
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            metaData.setColumnName(i + 1, columns[i]);
+            metaData.setColumnLabel(i + 1, columns[i]);
+            metaData.setColumnType(i + 1, types[i]);
+        }
+
+        resultSet = RowSetProvider.newFactory().createCachedRowSet();
+        resultSet.setMetaData(metaData);
+        for (long id = 1; id <= ROWS; id++) {
+            resultSet.moveToInsertRow();
+            resultSet.updateLong("id", id);
+            resultSet.updateString("name", "Alex " + id);
+            resultSet.updateString("email", "alex" + id + "@gmail.com");
+            resultSet.updateInt("age", 19);
+            resultSet.updateString("gender", id % 2 == 0 ? "MALE" : "FEMALE");
+            resultSet.insertRow();
+        }
+        resultSet.moveToCurrentRow();
+        resultSet.first();
+    }
+
+    @Benchmark
+    public Customer mapRow() throws SQLException {
+        return customerRowMapper.mapRow(resultSet, 1);
+    }
+
+    @Benchmark
+    public List<Customer> mapRowPerRow() throws SQLException {
+        resultSet.beforeFirst();
+        List<Customer> customers = new ArrayList<>();
+        while (resultSet.next())
+            customers.add(customerRowMapper.mapRow(resultSet, resultSet.getRow()));
+        return customers;
+    }
+
+    @Benchmark
+    public List<Customer> listExtractor() throws SQLException {
+        resultSet.beforeFirst();
+        return customerRowMapper.listExtractor().extractData(resultSet);
+    }
+}
@@ -0,0 +1,43 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerRegistrationRequest;
+import com.amigoscode.customer.CustomerUpdateRequest;
+import com.amigoscode.customer.Gender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerServiceBenchmark {
+
+    @Benchmark
+    public void addCustomer(CustomerDaoState state) {
+        state.customerService.addCustomer(
+                new CustomerRegistrationRequest(state.uniqueName(), state.uniqueEmail(), 30, Gender.MALE)
+        );
+    }
+
+    @Benchmark
+    public Customer getCustomer(CustomerDaoState state) {
+        return state.customerService.getCustomer(state.randomId());
+    }
+
+    @Benchmark
+    public void updateCustomer(CustomerDaoState state) {
+        state.customerService.updateCustomer(
+                state.randomId(),
+                new CustomerUpdateRequest(state.uniqueName(), null, null)
+        );
+    }
+}
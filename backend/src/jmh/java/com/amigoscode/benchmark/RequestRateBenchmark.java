@@ -0,0 +1,43 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.RequestRate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ping counter under contention from every core, next to the {@code AtomicInteger} it would be
+ * with a single shared cell. The GC profiler should report no allocation for either.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class RequestRateBenchmark {
+
+    private final RequestRate requestRate = new RequestRate();
+    private final AtomicInteger atomicCounter = new AtomicInteger();
+
+    @Benchmark
+    public void requestRate() {
+        requestRate.increment();
+    }
+
+    @Benchmark
+    public int atomicCounter() {
+        return atomicCounter.incrementAndGet();
+    }
+}
@@ -1,18 +1,105 @@
 package com.amigoscode;
 
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Liveness endpoint for the load balancer. {@code /ping} touches nothing shared but a striped counter,
+ * so it can be polled at any frequency without contending across cores. {@code /ping/status} adds the ping rate
+ * over sliding windows, how saturated the connection pool is and how the customer cache is doing.
+ */
 @RestController
 public class PingPongController {
 
-    private static int COUNTER = 0;
+    private static final String CUSTOMER_CACHE = "customers";
+
+    private final RequestRate pings = new RequestRate();
+    private final ObjectProvider<DataSource> dataSource;
+    private final MeterRegistry meterRegistry;
 
     record PingPong(String result) {
     }
 
+    record PingStatus(long pings, Rates pingsPerSecond, Pool pool, Cache cache) {
+    }
+
+    record Rates(double last1s, double last10s, double last60s) {
+    }
+
+    record Pool(int active, int idle, int waiting, int max, double saturation) {
+    }
+
+    record Cache(double size, double hitRatio, double evictions) {
+    }
+
+    public PingPongController(ObjectProvider<DataSource> dataSource, MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+    }
+
     @GetMapping("/ping")
     public PingPong getPingPong() {
-        return new PingPong("Pong: %s".formatted(++COUNTER));
+        pings.increment();
+        return new PingPong("Pong: %s".formatted(pings.total()));
+    }
+
+    @GetMapping("/ping/status")
+    public PingStatus getStatus() {
+        return new PingStatus(
+                pings.total(),
+                new Rates(pings.perSecond(1), pings.perSecond(10), pings.perSecond(RequestRate.MAX_WINDOW_SECONDS)),
+                pool(),
+                cache()
+        );
+    }
+
+    /**
+     * @return {@code null} without a Hikari pool, or before the pool has handed out its first connection
+     */
+    private Pool pool() {
+        DataSource source = dataSource.getIfAvailable();
+        try {
+            if (source == null || !source.isWrapperFor(HikariDataSource.class)) {
+                return null;
+            }
+            HikariDataSource hikari = source.unwrap(HikariDataSource.class);
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            if (pool == null) {
+                return null;
+            }
+            int active = pool.getActiveConnections();
+            int max = hikari.getMaximumPoolSize();
+            return new Pool(active, pool.getIdleConnections(), pool.getThreadsAwaitingConnection(), max,
+                    (double) active / max);
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read from the cache's Micrometer meters so that asking for the status does not create the
+     * lazily initialized caching DAO. {@code null} when the cache is not in use.
+     */
+    private Cache cache() {
+        FunctionCounter hits = meterRegistry.find("cache.gets")
+                .tags("cache", CUSTOMER_CACHE, "result", "hit").functionCounter();
+        FunctionCounter misses = meterRegistry.find("cache.gets")
+                .tags("cache", CUSTOMER_CACHE, "result", "miss").functionCounter();
+        Gauge size = meterRegistry.find("cache.size").tag("cache", CUSTOMER_CACHE).gauge();
+        FunctionCounter evictions = meterRegistry.find("cache.evictions").tag("cache", CUSTOMER_CACHE).functionCounter();
+        if (hits == null || misses == null || size == null || evictions == null) {
+            return null;
+        }
+        double lookups = hits.count() + misses.count();
+        return new Cache(size.value(), lookups == 0 ? 0 : hits.count() / lookups, evictions.count());
     }
 }
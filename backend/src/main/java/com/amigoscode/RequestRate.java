@@ -0,0 +1,70 @@
+package com.amigoscode;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts requests and reports the per-second rate over sliding windows of up to a minute. The total
+ * and each one-second bucket are {@link LongAdder}s, so concurrent callers update separate cells
+ * instead of fighting over one cache line, and once the cells exist a call allocates nothing.
+ * <p>
+ * Buckets are recycled when their second comes round again. An increment racing with the recycle
+ * of its bucket can be lost, so windowed rates are approximate; the total is exact.
+ */
+public class RequestRate {
+
+    public static final int MAX_WINDOW_SECONDS = 60;
+
+    private static final int BUCKETS = 64;
+
+    private final LongSupplier clock;
+    private final LongAdder total = new LongAdder();
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final AtomicLongArray bucketSeconds = new AtomicLongArray(BUCKETS);
+
+    public RequestRate() {
+        this(System::currentTimeMillis);
+    }
+
+    RequestRate(LongSupplier clock) {
+        this.clock = clock;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void increment() {
+        total.increment();
+        long second = clock.getAsLong() / 1000;
+        int bucket = (int) (second & (BUCKETS - 1));
+        long bucketSecond = bucketSeconds.get(bucket);
+        if (bucketSecond != second && bucketSeconds.compareAndSet(bucket, bucketSecond, second)) {
+            buckets[bucket].reset();
+        }
+        buckets[bucket].increment();
+    }
+
+    public long total() {
+        return total.sum();
+    }
+
+    /**
+     * @return the mean number of requests per second over the last {@code seconds} complete seconds,
+     * the second in progress is left out so a fresh bucket does not drag the rate down
+     */
+    public double perSecond(int seconds) {
+        if (seconds < 1 || seconds > MAX_WINDOW_SECONDS) {
+            throw new IllegalArgumentException("window must be between 1 and %s seconds".formatted(MAX_WINDOW_SECONDS));
+        }
+        long now = clock.getAsLong() / 1000;
+        long count = 0;
+        for (long second = now - seconds; second < now; second++) {
+            int bucket = (int) (second & (BUCKETS - 1));
+            if (bucketSeconds.get(bucket) == second) {
+                count += buckets[bucket].sum();
+            }
+        }
+        return (double) count / seconds;
+    }
+}
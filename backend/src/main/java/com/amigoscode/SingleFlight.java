@@ -0,0 +1,100 @@
+package com.amigoscode;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the call, callers arriving while it
+ * is in flight wait for it and get its result or its exception instead of running their own. Nothing is
+ * kept once the call completes, so this caps concurrent load per key without caching anything.
+ * <p>
+ * Calls are counted as {@value #METER}, tagged with the operation and a result of {@code executed} or
+ * {@code shared}.
+ */
+public class SingleFlight<K, V> {
+
+    public static final String METER = "singleflight.calls";
+
+    public record Result<V>(V value, boolean shared) {
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter shared;
+
+    public SingleFlight(String operation, MeterRegistry meterRegistry) {
+        this.executed = counter(operation, "executed", meterRegistry);
+        this.shared = counter(operation, "shared", meterRegistry);
+    }
+
+    private static Counter counter(String operation, String result, MeterRegistry meterRegistry) {
+        return Counter.builder(METER)
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public V load(K key, Supplier<V> call) {
+        return execute(key, call).value();
+    }
+
+    /**
+     * Like {@link #load(Object, Supplier)}, and tells whether the result came from another caller's call.
+     */
+    public Result<V> execute(K key, Supplier<V> call) {
+        return execute(key, call, failure -> true);
+    }
+
+    /**
+     * Like {@link #execute(Object, Supplier)}, but a waiting caller only gets the exceptions that
+     * {@code sharedFailure} accepts. When the call it waited for failed otherwise, for a reason that may
+     * not hold for its own call, it goes on to make its own call.
+     */
+    public Result<V> execute(K key, Supplier<V> call, Predicate<? super RuntimeException> sharedFailure) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running;
+        while ((running = inFlight.putIfAbsent(key, own)) != null) {
+            shared.increment();
+            try {
+                return new Result<>(await(running), true);
+            } catch (RuntimeException e) {
+                if (sharedFailure.test(e))
+                    throw e;
+                // the failed call may still be registered, it must not be waited for again
+                inFlight.remove(key, running);
+            }
+        }
+
+        executed.increment();
+        try {
+            V value = call.get();
+            own.complete(value);
+            return new Result<>(value, false);
+        } catch (Throwable e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // rethrown as the caller running the call saw it
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.amigoscode.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the Hikari pool size at startup against what Postgres and the request threads can use.
+ * All {@code customer.datasource.instances} pools together must fit in {@code max_connections} minus the
+ * connections reserved for superusers, or instances fail to connect under load. A pool larger than the
+ * Tomcat request threads keeps connections open that nothing will borrow.
+ * <p>
+ * Problems are logged, or fail startup when {@code customer.datasource.fail-on-invalid-pool} is set.
+ */
+@Slf4j
+@Component
+public class DataSourcePoolValidator implements ApplicationRunner {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean servlet;
+    private final int instances;
+    private final boolean failOnInvalidPool;
+    private final int requestThreads;
+
+    public DataSourcePoolValidator(
+            DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            ApplicationContext applicationContext,
+            @Value("${customer.datasource.instances}") int instances,
+            @Value("${customer.datasource.fail-on-invalid-pool}") boolean failOnInvalidPool,
+            @Value("${server.tomcat.threads.max:200}") int requestThreads) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.servlet = applicationContext instanceof WebApplicationContext;
+        this.instances = instances;
+        this.failOnInvalidPool = failOnInvalidPool;
+        this.requestThreads = requestThreads;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+            return;
+        }
+        int poolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+
+        Integer availableConnections;
+        try {
+            availableConnections = jdbcTemplate.queryForObject("""
+                    SELECT current_setting('max_connections')::int
+                         - current_setting('superuser_reserved_connections')::int
+                         - coalesce(current_setting('reserved_connections', true)::int, 0)
+                    """, Integer.class);
+        } catch (DataAccessException e) {
+            log.warn("Could not read max_connections, pool size {} is not validated", poolSize, e);
+            return;
+        }
+
+        List<String> problems = problems(poolSize, availableConnections);
+        if (problems.isEmpty()) {
+            log.info("Connection pool of {} x {} instances fits in {} available Postgres connections",
+                    poolSize, instances, availableConnections);
+            return;
+        }
+        String message = "Invalid connection pool size: " + String.join("; ", problems);
+        if (failOnInvalidPool) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    List<String> problems(int poolSize, int availableConnections) {
+        List<String> problems = new ArrayList<>();
+        int required = poolSize * instances;
+        if (required > availableConnections) {
+            problems.add("%s instances with %s connections each need %s, Postgres accepts %s"
+                    .formatted(instances, poolSize, required, availableConnections));
+        }
+        if (servlet && poolSize > requestThreads) {
+            problems.add("pool of %s is larger than the %s request threads that borrow from it"
+                    .formatted(poolSize, requestThreads));
+        }
+        return problems;
+    }
+}
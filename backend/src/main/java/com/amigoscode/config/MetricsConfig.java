@@ -0,0 +1,68 @@
+package com.amigoscode.config;
+
+import com.amigoscode.customer.CustomerMetricsInterceptor;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class MetricsConfig {
+
+    private static final String HTTP_SERVER_REQUESTS = "http.server.requests";
+    private static final String CUSTOMER_API = "/api/v1/customers";
+
+    @Bean
+    static Advisor customerServiceMetricsAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return advisor(
+                "execution(public * com.amigoscode.customer.CustomerService.*(..))",
+                CustomerMetricsInterceptor.forService(meterRegistry::getObject)
+        );
+    }
+
+    @Bean
+    static Advisor customerDaoMetricsAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return advisor(
+                "execution(* com.amigoscode.customer.CustomerDAO.*(..))",
+                CustomerMetricsInterceptor.forDao(meterRegistry::getObject)
+        );
+    }
+
+    /**
+     * Publishes percentile histograms for the customer endpoints only, so Prometheus can aggregate
+     * latency quantiles across instances. The bucket range is clamped to 1ms..10s to keep the number
+     * of series per endpoint small; actuator and other endpoints keep plain timers.
+     */
+    @Bean
+    MeterFilter customerApiHistogramFilter() {
+        DistributionStatisticConfig histogram = DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                .maximumExpectedValue((double) Duration.ofSeconds(10).toNanos())
+                .build();
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                String uri = id.getTag("uri");
+                if (HTTP_SERVER_REQUESTS.equals(id.getName()) && uri != null && uri.startsWith(CUSTOMER_API)) {
+                    return histogram.merge(config);
+                }
+                return config;
+            }
+        };
+    }
+
+    private static Advisor advisor(String expression, CustomerMetricsInterceptor interceptor) {
+        AspectJExpressionPointcutAdvisor advisor = new AspectJExpressionPointcutAdvisor();
+        advisor.setExpression(expression);
+        advisor.setAdvice(interceptor);
+        return advisor;
+    }
+}
@@ -0,0 +1,40 @@
+package com.amigoscode.config;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Carries the request thread's {@link ReplicaRoutingDataSource#pinToPrimary() pin} over to the thread that
+ * runs an async handler, such as a {@code StreamingResponseBody}, which otherwise reads from a replica after
+ * {@link ReadYourWritesFilter} pinned the request. The pin is taken before the handler runs and released
+ * when it returns.
+ */
+class PrimaryPinCallableInterceptor implements CallableProcessingInterceptor {
+
+    private static final String PINNED = PrimaryPinCallableInterceptor.class.getName() + ".pinned";
+    private static final String PIN = PrimaryPinCallableInterceptor.class.getName() + ".pin";
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        if (ReplicaRoutingDataSource.isPinnedToPrimary())
+            request.setAttribute(PINNED, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        if (request.getAttribute(PINNED, RequestAttributes.SCOPE_REQUEST) != null)
+            request.setAttribute(PIN, ReplicaRoutingDataSource.pinToPrimary(), RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        Object pin = request.getAttribute(PIN, RequestAttributes.SCOPE_REQUEST);
+        if (pin != null) {
+            request.removeAttribute(PIN, RequestAttributes.SCOPE_REQUEST);
+            ((ReplicaRoutingDataSource.Pin) pin).close();
+        }
+    }
+}
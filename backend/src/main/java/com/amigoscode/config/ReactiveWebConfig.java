@@ -0,0 +1,49 @@
+package com.amigoscode.config;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.config.CorsRegistration;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import java.util.List;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+
+@ConditionalOnWebApplication(type = REACTIVE)
+@Configuration
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    @Value("#{'${cors.allowed-origins}'.split(',')}")
+    private List<String> allowedOrigins;
+    @Value("#{'${cors.allowed-methods}'.split(',')}")
+    private List<String> allowedMethods;
+
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        CorsRegistration corsRegistration = registry.addMapping("/api/**");
+        allowedOrigins.forEach(corsRegistration::allowedOrigins);
+        allowedMethods.forEach(corsRegistration::allowedMethods);
+    }
+
+    /**
+     * The connection factory is deliberately not a bean: one in the context would make Spring Boot
+     * back off from the JDBC DataSource that Flyway and the blocking DAOs still need.
+     */
+    @Bean
+    DatabaseClient databaseClient(
+            @Value("${spring.r2dbc.url}") String url,
+            @Value("${spring.r2dbc.username}") String username,
+            @Value("${spring.r2dbc.password}") String password) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        return DatabaseClient.create(ConnectionFactories.get(options));
+    }
+}
@@ -0,0 +1,71 @@
+package com.amigoscode.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Marks a client that sent a write with a short-lived cookie, and serves every request carrying the
+ * cookie from the primary, so the client reads its own writes while the replicas lag behind. The cookie
+ * is set before the write runs, as the response may be committed before the filter sees it again.
+ * {@code POST .../batch-get} only reads, the id list is in the body because it may not fit in a query
+ * string, so it counts as a read. Async handlers of a pinned request stay pinned through
+ * {@link PrimaryPinCallableInterceptor}.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "read-primary";
+    private static final String BATCH_GET = "/batch-get";
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean write = !isRead(request);
+        if (write) {
+            Cookie cookie = new Cookie(COOKIE, "1");
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) window.toSeconds());
+            response.addCookie(cookie);
+        }
+
+        if (!write && !hasCookie(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try (ReplicaRoutingDataSource.Pin ignored = ReplicaRoutingDataSource.pinToPrimary()) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)
+                || "POST".equals(method) && request.getRequestURI().endsWith(BATCH_GET);
+    }
+
+    private static boolean hasCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,103 @@
+package com.amigoscode.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+/**
+ * Replaces the single auto-configured data source with a {@link ReplicaRoutingDataSource} when
+ * {@code customer.datasource.replica-urls} lists at least one replica. Replicas share the primary's
+ * credentials and Hikari settings.
+ */
+@Configuration
+@ConditionalOnExpression("!'${customer.datasource.replica-urls:}'.isBlank()")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            @Value("#{'${customer.datasource.replica-urls}'.split(',')}") List<String> replicaUrls,
+            @Value("${customer.datasource.replica-balancing}") String balancing,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        List<HikariDataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            primaryDataSource.copyStateTo(replica);
+            replica.setJdbcUrl(replicaUrls.get(i).strip());
+            replica.setPoolName("replica-" + i);
+            replica.setReadOnly(true);
+            // replicas are not beans, so the pool metrics have to be wired here
+            meterRegistry.ifAvailable(registry ->
+                    replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(
+                primaryDataSource,
+                replicas,
+                ReplicaRoutingDataSource.Balancing.valueOf(balancing.toUpperCase(Locale.ROOT).replace('-', '_'))
+        );
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * Keeps a client on the primary for {@code customer.datasource.read-your-writes-window} after it
+     * changed something, until the replicas have caught up.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = SERVLET)
+    FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${customer.datasource.read-your-writes-window}") Duration window) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    /**
+     * Keeps async handlers of a pinned request, such as the NDJSON stream, on the primary. The change feed's
+     * SSE polling needs nothing: the outbox is not read in read-only transactions, so it is always read
+     * from the primary.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = SERVLET)
+    WebMvcConfigurer primaryPinPropagation() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.registerCallableInterceptors(new PrimaryPinCallableInterceptor());
+            }
+        };
+    }
+}
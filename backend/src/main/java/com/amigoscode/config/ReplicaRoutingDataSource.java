@@ -0,0 +1,113 @@
+package com.amigoscode.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to a replica and everything else to the primary. Callers
+ * that must see their own writes pin themselves with {@link #pinToPrimary()}.
+ * <p>
+ * The transaction's read-only flag is only set after the transaction manager asked for a connection, so
+ * this data source has to sit behind a {@code LazyConnectionDataSourceProxy}, which fetches the real
+ * connection on the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public enum Balancing {
+        ROUND_ROBIN,
+        LEAST_CONNECTIONS
+    }
+
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final Balancing balancing;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, Balancing balancing) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.balancing = balancing;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < this.replicas.size(); i++) {
+            targets.put(i, this.replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Takes every connection of the current thread, read-only or not, from the primary until the
+     * returned pin is closed. Pins nest.
+     */
+    public static Pin pinToPrimary() {
+        if (PINNED.get() != null) {
+            return () -> {
+            };
+        }
+        PINNED.set(Boolean.TRUE);
+        return PINNED::remove;
+    }
+
+    /**
+     * Whether connections of the current thread are pinned to the primary.
+     */
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    public interface Pin extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty()
+                || isPinnedToPrimary()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        return switch (balancing) {
+            case ROUND_ROBIN -> Math.floorMod(next.getAndIncrement(), replicas.size());
+            case LEAST_CONNECTIONS -> leastConnections();
+        };
+    }
+
+    private int leastConnections() {
+        int least = 0;
+        int leastActive = Integer.MAX_VALUE;
+        // start at a rotating offset so that ties do not all land on the first replica
+        int offset = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int candidate = (offset + i) % replicas.size();
+            HikariPoolMXBean pool = replicas.get(candidate).getHikariPoolMXBean();
+            int active = pool != null ? pool.getActiveConnections() : 0;
+            if (active < leastActive) {
+                least = candidate;
+                leastActive = active;
+            }
+        }
+        return least;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+}
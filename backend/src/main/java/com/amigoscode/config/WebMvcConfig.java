@@ -1,13 +1,27 @@
 package com.amigoscode.config;
 
+import com.amigoscode.customer.CustomerProtobufHttpMessageConverter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
 import org.springframework.web.servlet.config.annotation.CorsRegistration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
 
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+@ConditionalOnWebApplication(type = SERVLET)
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
 
@@ -22,4 +36,39 @@ public class WebMvcConfig implements WebMvcConfigurer {
         allowedOrigins.forEach(corsRegistration::allowedOrigins);
         allowedMethods.forEach(corsRegistration::allowedMethods);
     }
+
+    /**
+     * A page or search result has no single version to tag it with, so its ETag is a hash of the
+     * serialized body. That still turns an unchanged poll into a 304 without a body on the wire. Both are
+     * bounded by their limit; the unpaginated list and the NDJSON stream are left out, as buffering and
+     * hashing the whole table per request costs more than the 304 saves. Single customers are tagged
+     * with their version by the controller.
+     */
+    @Bean
+    FilterRegistrationBean<ShallowEtagHeaderFilter> customerListETagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration =
+                new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns("/api/v1/customers/page", "/api/v1/customers/search");
+        return registration;
+    }
+
+    /**
+     * Smile and CBOR are negotiated through the Accept and Content-Type headers, with the same mapper
+     * settings as JSON. Boot picks these beans up in place of Spring's defaults, after the JSON converter,
+     * so JSON stays what clients get unless they ask for something else.
+     */
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new CustomerProtobufHttpMessageConverter());
+    }
 }
@@ -1,31 +1,45 @@
 package com.amigoscode.customer;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
+/**
+ * The {@code customer} table is hash partitioned on id. Unique emails are enforced by the
+ * {@code customer_email} table, which a trigger keeps in step with it.
+ */
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
-@Table(
-        name = "customer",
-        uniqueConstraints = @UniqueConstraint(name = "customer_email_unique", columnNames = "email")
-)
+@DynamicUpdate
+@Table(name = "customer")
 public class Customer {
 
+    /**
+     * Must match the increment of {@code customer_id_seq}.
+     */
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Allocated in blocks of {@link #ID_ALLOCATION_SIZE} by Hibernate's pooled-lo optimizer, so inserts
+     * through JPA take one {@code nextval} per block instead of per row and can be batched. Rows inserted
+     * through the column default take a single value, which wastes the rest of its block but never
+     * collides with ids handed out by JPA.
+     */
     @Id
     @SequenceGenerator(
             name = "customer_id_seq",
             sequenceName = "customer_id_seq",
-            allocationSize = 1
+            allocationSize = Customer.ID_ALLOCATION_SIZE
     )
     @GeneratedValue(
             strategy = GenerationType.SEQUENCE,
             generator = "customer_id_seq"
     )
-    private Integer id;
+    private Long id;
 
     @Column(nullable = false)
     private String name;
@@ -40,10 +54,34 @@ public class Customer {
     @Enumerated(EnumType.STRING)
     private Gender gender;
 
+    /**
+     * Incremented on every update. Used for optimistic locking and as the customer's ETag,
+     * so it is not part of the JSON body or of equality.
+     */
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private Long version;
+
+    public Customer(Long id, String name, String email, Integer age, Gender gender, Long version) {
+        this(id, name, email, age, gender);
+        this.version = version;
+    }
+
+    public Customer(Long id, String name, String email, Integer age, Gender gender) {
+        this(name, email, age, gender);
+        this.id = id;
+    }
+
     public Customer(String name, String email, Integer age, Gender gender) {
         this.name = name;
         this.email = email;
         this.age = age;
         this.gender = gender;
     }
+
+    public Customer copy() {
+        return new Customer(id, name, email, age, gender, version);
+    }
 }
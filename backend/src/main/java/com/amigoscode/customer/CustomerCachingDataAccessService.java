@@ -0,0 +1,165 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.config.ReplicaRoutingDataSource;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache for customer lookups by id in front of the "jpa" DAO. Entries are evicted by
+ * Caffeine's W-TinyLFU policy once {@code customer.cache.maximum-size} is reached, expire after
+ * {@code customer.cache.expire-after-write}, and are invalidated by every write going through this DAO.
+ * Hit, miss and eviction counts are published as {@code cache.*} metrics tagged {@code cache=customers}.
+ * Email existence checks are short-circuited by the {@link CustomerEmailFilter}.
+ */
+@Lazy
+@Repository("cache")
+public class CustomerCachingDataAccessService implements CustomerDAO {
+
+    private final CustomerDAO delegate;
+    private final Cache<Long, Customer> customersById;
+    private final CustomerEmailFilter emailFilter;
+
+    public CustomerCachingDataAccessService(
+            @Qualifier("jpa") CustomerDAO delegate,
+            CustomerEmailFilter emailFilter,
+            @Value("${customer.cache.maximum-size}") long maximumSize,
+            @Value("${customer.cache.expire-after-write}") Duration expireAfterWrite,
+            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.emailFilter = emailFilter;
+        this.customersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, customersById, "customers");
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return delegate.selectAllCustomers();
+    }
+
+    @Override
+    public List<Customer> selectCustomerPage(Long afterId, int limit) {
+        return delegate.selectCustomerPage(afterId, limit);
+    }
+
+    @Override
+    public List<Customer> selectCustomers(CustomerQuery query) {
+        return delegate.selectCustomers(query);
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, int limit) {
+        return delegate.searchCustomers(query, limit);
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        delegate.streamAllCustomers(consumer);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        // missing customers are not cached, the loader returning null leaves no entry behind.
+        // Callers mutate the customers they get back, so the cached instances are never handed out.
+        Customer customer = customersById.get(id, key -> {
+            // a lagging replica must not put a stale customer in the cache
+            try (ReplicaRoutingDataSource.Pin ignored = ReplicaRoutingDataSource.pinToPrimary()) {
+                return delegate.selectCustomerById(key).orElse(null);
+            }
+        });
+        return Optional.ofNullable(customer).map(Customer::copy);
+    }
+
+    /**
+     * Serves cached customers from the cache and loads the others in one call, caching them as well.
+     */
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        Map<Long, Customer> customers = customersById.getAll(ids, missing -> {
+            try (ReplicaRoutingDataSource.Pin ignored = ReplicaRoutingDataSource.pinToPrimary()) {
+                return delegate.selectCustomersByIds(List.copyOf(missing)).stream()
+                        .collect(Collectors.toMap(Customer::getId, Function.identity()));
+            }
+        });
+        return customers.values().stream()
+                .map(Customer::copy)
+                .toList();
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Long id) {
+        Customer cached = customersById.getIfPresent(id);
+        return cached != null ? Optional.of(cached.getVersion()) : delegate.selectCustomerVersion(id);
+    }
+
+    @Override
+    public Long insertCustomer(Customer customer) {
+        emailFilter.add(customer.getEmail());
+        Long id = delegate.insertCustomer(customer);
+        customersById.invalidate(id);
+        return id;
+    }
+
+    @Override
+    public int insertCustomers(List<Customer> customers) {
+        customers.forEach(customer -> emailFilter.add(customer.getEmail()));
+        return delegate.insertCustomers(customers);
+    }
+
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        return emailFilter.mightContain(email) && delegate.existsPersonWithEmail(email);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        List<String> candidates = emails.stream()
+                .filter(emailFilter::mightContain)
+                .toList();
+        return candidates.isEmpty() ? Set.of() : delegate.selectExistingEmails(candidates);
+    }
+
+    @Override
+    public boolean existsPersonWithId(Long id) {
+        return customersById.getIfPresent(id) != null || delegate.existsPersonWithId(id);
+    }
+
+    @Override
+    public void deleteCustomerById(Long id) {
+        try {
+            delegate.deleteCustomerById(id);
+        } finally {
+            customersById.invalidate(id);
+        }
+    }
+
+    @Override
+    public void updateCustomer(Customer update) {
+        if (update.getEmail() != null)
+            emailFilter.add(update.getEmail());
+        try {
+            delegate.updateCustomer(update);
+        } finally {
+            customersById.invalidate(update.getId());
+        }
+    }
+}
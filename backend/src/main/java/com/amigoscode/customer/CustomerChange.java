@@ -0,0 +1,14 @@
+package com.amigoscode.customer;
+
+import java.time.Instant;
+
+/**
+ * A committed insert, update or delete of a customer. {@code customer} is the state after the change,
+ * {@code null} for deletes. Pass {@code cursor} back as {@code since} to continue after this change.
+ */
+public record CustomerChange(String cursor, Type type, Long customerId, Customer customer, Instant changedAt) {
+
+    public enum Type {
+        INSERTED, UPDATED, DELETED
+    }
+}
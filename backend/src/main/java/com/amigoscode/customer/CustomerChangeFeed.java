@@ -0,0 +1,124 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+/**
+ * Serves the customer outbox to consumers, either page by page or as a Server-Sent Events stream.
+ * Each stream subscriber polls the outbox every {@code customer.changes.poll-interval} from its own
+ * cursor, so a slow consumer never holds back the others. The event id is the change's cursor, which
+ * lets a reconnecting client resume from {@code Last-Event-ID}.
+ */
+@Slf4j
+@ConditionalOnWebApplication(type = SERVLET)
+@Component
+public class CustomerChangeFeed {
+
+    static final int MAX_BATCH_SIZE = 1000;
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    private final CustomerOutbox customerOutbox;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration streamTimeout;
+    private final ScheduledExecutorService pollExecutor = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "customer-change-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CustomerChangeFeed(
+            CustomerOutbox customerOutbox,
+            @Value("${customer.changes.batch-size}") int batchSize,
+            @Value("${customer.changes.poll-interval}") Duration pollInterval,
+            @Value("${customer.changes.stream-timeout}") Duration streamTimeout) {
+        this.customerOutbox = customerOutbox;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.streamTimeout = streamTimeout;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pollExecutor.shutdownNow();
+    }
+
+    public CustomerChangePage getChanges(String since, int limit) {
+        if (limit < 1 || limit > MAX_BATCH_SIZE)
+            throw new RequestValidationException("limit must be between 1 and %s".formatted(MAX_BATCH_SIZE));
+
+        List<CustomerChange> changes = customerOutbox.selectChangesAfter(since, limit);
+        String next = changes.isEmpty() ? since : changes.get(changes.size() - 1).cursor();
+        return new CustomerChangePage(changes, next);
+    }
+
+    public SseEmitter subscribe(String since) {
+        // validate before the response is committed to text/event-stream
+        CustomerOutbox.parseCursor(since);
+
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Subscription subscription = new Subscription(emitter, since);
+        ScheduledFuture<?> polling = pollExecutor.scheduleWithFixedDelay(
+                subscription::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+        emitter.onCompletion(() -> polling.cancel(false));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> polling.cancel(false));
+        return emitter;
+    }
+
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private String cursor;
+        private long lastSentNanos = System.nanoTime();
+
+        Subscription(SseEmitter emitter, String since) {
+            this.emitter = emitter;
+            this.cursor = since;
+        }
+
+        void poll() {
+            try {
+                List<CustomerChange> changes;
+                do {
+                    changes = customerOutbox.selectChangesAfter(cursor, batchSize);
+                    for (CustomerChange change : changes) {
+                        emitter.send(SseEmitter.event()
+                                .id(change.cursor())
+                                .name(change.type().name())
+                                .data(change));
+                        cursor = change.cursor();
+                    }
+                } while (changes.size() == batchSize);
+
+                if (!changes.isEmpty())
+                    lastSentNanos = System.nanoTime();
+                else if (System.nanoTime() - lastSentNanos >= HEARTBEAT_INTERVAL.toNanos()) {
+                    // detects consumers that went away while there was nothing to send
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    lastSentNanos = System.nanoTime();
+                }
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            } catch (RuntimeException e) {
+                log.warn("Could not read customer changes after [{}]", cursor, e);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.amigoscode.customer;
+
+import java.util.List;
+
+/**
+ * Changes after a cursor, oldest first. {@code next} is the cursor to poll with next time; it stays
+ * the same as the requested one when there were no new changes.
+ */
+public record CustomerChangePage(List<CustomerChange> changes, String next) {
+}
@@ -1,25 +1,114 @@
 package com.amigoscode.customer;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Optional;
+
+import static com.amigoscode.customer.CustomerETags.eTag;
+import static com.amigoscode.customer.CustomerETags.expectedVersion;
+import static com.amigoscode.customer.CustomerETags.matchesAny;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
 
 @AllArgsConstructor
+@ConditionalOnWebApplication(type = SERVLET)
 @RequestMapping("api/v1/customers")
 @RestController
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CustomerChangeFeed customerChangeFeed;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public List<Customer> getCustomers() {
-        return customerService.getAllCustomers();
+    public List<Customer> getCustomers(CustomerQuery query) {
+        return customerService.getCustomers(query);
+    }
+
+    @GetMapping(params = "ids")
+    public CustomerLookupResult getCustomersByIds(@RequestParam List<Long> ids) {
+        return customerService.getCustomersByIds(ids);
+    }
+
+    /**
+     * Same as {@code GET ?ids=}, for id lists too long for a query string.
+     */
+    @PostMapping("batch-get")
+    public CustomerLookupResult getCustomersByIdsInBody(@RequestBody List<Long> ids) {
+        return customerService.getCustomersByIds(ids);
+    }
+
+    @GetMapping("search")
+    public List<Customer> searchCustomers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "${customer.search.default-limit}") int limit) {
+        return customerService.searchCustomers(q, limit);
+    }
+
+    @GetMapping("changes")
+    public CustomerChangePage getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "${customer.changes.batch-size}") int limit) {
+        return customerChangeFeed.getChanges(since, limit);
+    }
+
+    @GetMapping(value = "changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestParam(required = false) String since,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return customerChangeFeed.subscribe(lastEventId != null ? lastEventId : since);
     }
 
+    @GetMapping("page")
+    public CustomerPage getCustomerPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "${customer.page.default-size}") int size) {
+        return customerService.getCustomerPage(after, size);
+    }
+
+    @GetMapping(value = "stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamCustomers() {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                customerService.streamAllCustomers(customer -> writeLine(generator, customer));
+            }
+        };
+    }
+
+    /**
+     * Tagged with the customer's version. A matching {@code If-None-Match} is answered with a 304 from
+     * the version alone, without loading or serializing the customer.
+     */
     @GetMapping("{customerId}")
-    public Customer getCustomer(@PathVariable Integer customerId) {
-        return customerService.getCustomer(customerId);
+    public ResponseEntity<Customer> getCustomer(
+            @PathVariable Long customerId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> currentETag = customerService.getCustomerVersion(customerId).map(CustomerETags::eTag);
+            if (currentETag.isPresent() && matchesAny(ifNoneMatch, currentETag.get()))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentETag.get()).build();
+        }
+
+        Customer customer = customerService.getCustomer(customerId);
+        // a customer with a pending write-behind update is at no stored version yet, so it goes untagged
+        if (customer.getVersion() == null)
+            return ResponseEntity.ok().body(customer);
+        return ResponseEntity.ok().eTag(eTag(customer.getVersion())).body(customer);
     }
 
     @PostMapping
@@ -27,15 +116,39 @@ public class CustomerController {
         customerService.addCustomer(customerRegistrationRequest);
     }
 
+    @PostMapping(value = "batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CustomerImportResult registerCustomers(@RequestBody List<CustomerRegistrationRequest> requests) {
+        return customerService.importCustomers(requests.iterator());
+    }
+
+    @PostMapping(value = "batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public CustomerImportResult registerCustomerStream(InputStream requestBody) throws IOException {
+        try (MappingIterator<CustomerRegistrationRequest> requests = objectMapper
+                .readerFor(CustomerRegistrationRequest.class)
+                .readValues(requestBody)) {
+            return customerService.importCustomers(requests);
+        }
+    }
+
     @DeleteMapping("{customerId}")
-    public void deleteCustomer(@PathVariable Integer customerId) {
+    public void deleteCustomer(@PathVariable Long customerId) {
         customerService.deleteCustomerById(customerId);
     }
 
     @PutMapping("{customerId}")
     public void updateCustomer(
-            @PathVariable Integer customerId,
+            @PathVariable Long customerId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody CustomerUpdateRequest customerUpdateRequest) {
-        customerService.updateCustomer(customerId, customerUpdateRequest);
+        customerService.updateCustomer(customerId, customerUpdateRequest, expectedVersion(ifMatch));
+    }
+
+    private static void writeLine(JsonGenerator generator, Customer customer) {
+        try {
+            generator.writePOJO(customer);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -1,20 +1,100 @@
 package com.amigoscode.customer;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface CustomerDAO {
+
+    int STREAM_PAGE_SIZE = 500;
+
     List<Customer> selectAllCustomers();
 
-    Optional<Customer> selectCustomerById(Integer id);
+    /**
+     * Keyset pagination: returns at most {@code limit} customers with an id greater than
+     * {@code afterId}, ordered by id.
+     */
+    List<Customer> selectCustomerPage(Long afterId, int limit);
+
+    /**
+     * Hands every customer to the consumer in id order without materializing the whole table.
+     * The default implementation walks the table page by page.
+     */
+    default void streamAllCustomers(Consumer<Customer> consumer) {
+        Long afterId = 0L;
+        List<Customer> page;
+        do {
+            page = selectCustomerPage(afterId, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty())
+                afterId = page.get(page.size() - 1).getId();
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    /**
+     * Customers matching every filter set on the query, in the query's order.
+     */
+    List<Customer> selectCustomers(CustomerQuery query);
+
+    /**
+     * Customers whose name or email contains {@code query} or is similar to it, best match first.
+     *
+     * @return at most {@code limit} customers
+     */
+    List<Customer> searchCustomers(String query, int limit);
 
-    void insertCustomer(Customer customer);
+    Optional<Customer> selectCustomerById(Long id);
+
+    /**
+     * Multi-get counterpart of {@link #selectCustomerById(Long)}, in one round trip.
+     *
+     * @return the customers that exist among {@code ids}, in no particular order
+     */
+    List<Customer> selectCustomersByIds(Collection<Long> ids);
+
+    /**
+     * The customer's current version alone, cheap enough to answer conditional requests with.
+     */
+    Optional<Long> selectCustomerVersion(Long id);
+
+    /**
+     * Inserts the customer in a single statement.
+     *
+     * @return the id of the new customer
+     * @throws com.amigoscode.exception.DuplicateResourceException if the email is already taken
+     */
+    Long insertCustomer(Customer customer);
+
+    /**
+     * Inserts the customers in bulk, skipping any whose email is already taken.
+     *
+     * @return the number of customers inserted
+     */
+    int insertCustomers(List<Customer> customers);
 
     boolean existsPersonWithEmail(String email);
 
-    boolean existsPersonWithId(Integer id);
+    /**
+     * Set-based counterpart of {@link #existsPersonWithEmail(String)}.
+     *
+     * @return the subset of {@code emails} that already belong to a customer
+     */
+    Set<String> selectExistingEmails(Collection<String> emails);
+
+    boolean existsPersonWithId(Long id);
 
-    void deleteCustomerById(Integer id);
+    void deleteCustomerById(Long id);
 
+    /**
+     * Applies the non-null fields of {@code update} and increments the version. When {@code update}
+     * carries a version the update only succeeds if the stored customer is still at that version.
+     *
+     * @throws com.amigoscode.exception.DuplicateResourceException          if the update changes the email to one
+     *                                                                      that is already taken
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the customer has moved past
+     *                                                                      {@code update}'s version
+     */
     void updateCustomer(Customer update);
 }
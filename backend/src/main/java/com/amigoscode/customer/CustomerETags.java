@@ -0,0 +1,50 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.PreconditionFailedException;
+
+/**
+ * The customer's version as an ETag, shared by the MVC controller and the reactive handler so that
+ * both stacks answer conditional requests alike.
+ */
+public final class CustomerETags {
+
+    private CustomerETags() {
+    }
+
+    public static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * If-None-Match uses the weak comparison, so W/ tags count as well.
+     */
+    public static boolean matchesAny(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            if (tag.equals("*") || tag.equals(eTag) || tag.equals("W/" + eTag))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * If-Match uses the strong comparison against a single version, * matches whatever is current.
+     *
+     * @return the version the client expects, {@code null} if any version will do
+     * @throws PreconditionFailedException if the header cannot be one of our tags
+     */
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.strip().equals("*"))
+            return null;
+
+        String tag = ifMatch.strip();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // falls through, the tag cannot be one of ours
+            }
+        }
+        throw new PreconditionFailedException("If-Match must be a single strong ETag of the customer");
+    }
+}
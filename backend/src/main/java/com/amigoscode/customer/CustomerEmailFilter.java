@@ -0,0 +1,147 @@
+package com.amigoscode.customer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory membership filter for customer emails. A {@code false} from {@link #mightContain(String)}
+ * means no customer has the email, so the database does not need to be asked.
+ * <p>
+ * The filter is built in the background by streaming the customer table, and rebuilt every
+ * {@code customer.email-filter.rebuild-interval} to drop emails of deleted customers. Until the first
+ * build completes every email is reported as a possible match. Writers must call {@link #add(String)}
+ * before the email reaches the database. The stream may not see an insert that is still uncommitted, so
+ * emails added within {@code customer.email-filter.in-flight-window} before a rebuild starts, and all
+ * emails added while it runs, are replayed into the rebuilt filter before it is swapped in. Writes from
+ * other instances are not seen, so the {@code customer_email_unique} constraint stays the source of truth.
+ */
+@Slf4j
+@Lazy
+@Component
+public class CustomerEmailFilter {
+
+    private final CustomerDAO customerDAO;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final Duration rebuildInterval;
+    private final long inFlightWindowNanos;
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-email-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // adds share the read lock, a rebuild takes the write lock to mark its start and to swap filters
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Queue<RecentAdd> recentAdds = new ConcurrentLinkedQueue<>();
+    private volatile EmailBloomFilter active;
+    private Long rebuildStartedNanos;
+
+    private record RecentAdd(String email, long addedNanos) {
+    }
+
+    public CustomerEmailFilter(
+            @Qualifier("jpa") CustomerDAO customerDAO,
+            @Value("${customer.email-filter.expected-insertions}") long expectedInsertions,
+            @Value("${customer.email-filter.false-positive-probability}") double falsePositiveProbability,
+            @Value("${customer.email-filter.rebuild-interval}") Duration rebuildInterval,
+            @Value("${customer.email-filter.in-flight-window}") Duration inFlightWindow) {
+        this.customerDAO = customerDAO;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.rebuildInterval = rebuildInterval;
+        this.inFlightWindowNanos = inFlightWindow.toNanos();
+    }
+
+    @PostConstruct
+    void scheduleRebuilds() {
+        rebuildExecutor.scheduleWithFixedDelay(
+                this::rebuildQuietly, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    public boolean mightContain(String email) {
+        EmailBloomFilter filter = active;
+        return filter == null || filter.mightContain(email);
+    }
+
+    public void add(String email) {
+        Lock lock = swapLock.readLock();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            recentAdds.add(new RecentAdd(email, now));
+            EmailBloomFilter current = active;
+            if (current != null)
+                current.put(email);
+            // a running rebuild still needs the adds of the window before it started
+            forgetAddsBefore((rebuildStartedNanos != null ? rebuildStartedNanos : now) - inFlightWindowNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void forgetAddsBefore(long nanos) {
+        RecentAdd oldest;
+        while ((oldest = recentAdds.peek()) != null && oldest.addedNanos() - nanos < 0)
+            recentAdds.remove(oldest);
+    }
+
+    void rebuild() {
+        EmailBloomFilter next = new EmailBloomFilter(expectedInsertions, falsePositiveProbability);
+        long startedNanos = System.nanoTime();
+        Lock lock = swapLock.writeLock();
+        lock.lock();
+        try {
+            rebuildStartedNanos = startedNanos;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean streamed = false;
+        try {
+            customerDAO.streamAllCustomers(customer -> next.put(customer.getEmail()));
+            streamed = true;
+        } finally {
+            lock.lock();
+            try {
+                if (streamed) {
+                    forgetAddsBefore(startedNanos - inFlightWindowNanos);
+                    recentAdds.forEach(add -> next.put(add.email()));
+                    active = next;
+                }
+                rebuildStartedNanos = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+        log.info("Rebuilt customer email filter ({} bytes)", next.sizeInBytes());
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild customer email filter, keeping the previous one", e);
+        }
+    }
+}
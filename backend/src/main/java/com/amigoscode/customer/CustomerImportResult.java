@@ -0,0 +1,22 @@
+package com.amigoscode.customer;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk registration. Requests are imported in chunks; a request is rejected when it
+ * is incomplete or its email is already taken, either by an existing customer, by one registered while
+ * the chunk was being inserted, or earlier in the import.
+ */
+public record CustomerImportResult(int accepted, int rejected, List<ChunkResult> chunks) {
+
+    public record ChunkResult(int chunk, int accepted, int rejected) {
+    }
+
+    static CustomerImportResult of(List<ChunkResult> chunks) {
+        return new CustomerImportResult(
+                chunks.stream().mapToInt(ChunkResult::accepted).sum(),
+                chunks.stream().mapToInt(ChunkResult::rejected).sum(),
+                chunks
+        );
+    }
+}
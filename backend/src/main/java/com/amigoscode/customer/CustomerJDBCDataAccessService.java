@@ -1,28 +1,147 @@
 package com.amigoscode.customer;
 
-import lombok.AllArgsConstructor;
+import com.amigoscode.exception.DuplicateResourceException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
-@AllArgsConstructor
+/**
+ * Queries the hash-partitioned {@code customer} table. Lookups by id name the partition key and touch a
+ * single partition; lookups by email go through {@code customer_email}, which is partitioned on email and
+ * holds the id, so they touch one partition of each table.
+ */
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDAO {
 
+    private static final String INSERT_SQL = """
+            INSERT INTO customer (name, email, age, gender)
+            VALUES (?,?,?,?)
+            """;
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public CustomerJDBCDataAccessService(
+            JdbcTemplate jdbcTemplate,
+            CustomerRowMapper customerRowMapper,
+            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.customerRowMapper = customerRowMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     @Override
     public List<Customer> selectAllCustomers() {
-        return jdbcTemplate.query("SELECT id,name,email,age, gender FROM customer", customerRowMapper);
+        return jdbcTemplate.query("SELECT id,name,email,age,gender,version FROM customer", customerRowMapper.listExtractor());
     }
 
     @Override
-    public Optional<Customer> selectCustomerById(Integer id) {
+    public List<Customer> selectCustomerPage(Long afterId, int limit) {
         var sql = """
-                SELECT id,name,email,age,gender
+                SELECT id,name,email,age,gender,version
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+
+        return jdbcTemplate.query(sql, customerRowMapper.listExtractor(), afterId, limit);
+    }
+
+    /**
+     * Streams rows straight off the {@link java.sql.ResultSet}. The Postgres driver only honours the
+     * fetch size inside a transaction, otherwise it would buffer the whole result set in memory.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        var sql = """
+                SELECT id,name,email,age,gender,version
+                FROM customer
+                ORDER BY id
+                """;
+
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setFetchSize(STREAM_PAGE_SIZE);
+                    return statement;
+                },
+                customerRowMapper.rowHandler(consumer)
+        );
+    }
+
+    @Override
+    public List<Customer> selectCustomers(CustomerQuery query) {
+        StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        List<Object> args = new ArrayList<>();
+        if (query.name() != null) {
+            where.add("lower(name) LIKE ?");
+            args.add(query.namePattern());
+        }
+        if (query.email() != null) {
+            // resolved through customer_email, so only the customer's partition is scanned
+            where.add("id = (SELECT customer_id FROM customer_email WHERE email = ?)");
+            args.add(query.email());
+        }
+        if (query.minAge() != null) {
+            where.add("age >= ?");
+            args.add(query.minAge());
+        }
+        if (query.maxAge() != null) {
+            where.add("age <= ?");
+            args.add(query.maxAge());
+        }
+        if (query.gender() != null) {
+            where.add("gender = ?");
+            args.add(query.gender().name());
+        }
+
+        var sql = "SELECT id,name,email,age,gender,version FROM customer" + where
+                + " ORDER BY " + query.sort().column() + " " + query.direction()
+                + (query.sort() == CustomerQuery.SortField.ID ? "" : ", id");
+
+        return jdbcTemplate.query(sql, customerRowMapper.listExtractor(), args.toArray());
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, int limit) {
+        var sql = """
+                SELECT id,name,email,age,gender,version
+                FROM customer
+                WHERE name ILIKE ? OR email ILIKE ? OR ? <% name OR ? <% email
+                ORDER BY greatest(word_similarity(?, name), word_similarity(?, email)) DESC, id
+                LIMIT ?
+                """;
+        String pattern = "%" + CustomerQuery.escapeLike(query) + "%";
+
+        return jdbcTemplate.query(sql, customerRowMapper.listExtractor(),
+                pattern, pattern, query, query, query, query, limit);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        var sql = """
+                SELECT id,name,email,age,gender,version
                 FROM customer
                 WHERE id = ?
                 """;
@@ -33,26 +152,118 @@ public class CustomerJDBCDataAccessService implements CustomerDAO {
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
         var sql = """
-                INSERT INTO customer (name, email, age,gender)
-                VALUES (?,?,?,?)
+                SELECT id,name,email,age,gender,version
+                FROM customer
+                WHERE id = ANY(?)
                 """;
 
-        jdbcTemplate.update(
-                sql,
-                customer.getName(),
-                customer.getEmail(),
-                customer.getAge(),
-                customer.getGender().name()
-        );
+        return jdbcTemplate.query(sql, customerRowMapper.listExtractor(), (Object) ids.toArray(Long[]::new));
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Long id) {
+        return jdbcTemplate.queryForList("SELECT version FROM customer WHERE id = ?", Long.class, id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Long insertCustomer(Customer customer) {
+        var sql = CustomerOutbox.recording(INSERT_SQL, CustomerChange.Type.INSERTED) + " RETURNING customer_id";
+
+        try {
+            return jdbcTemplate.queryForObject(
+                    sql,
+                    Long.class,
+                    customer.getName(),
+                    customer.getEmail(),
+                    customer.getAge(),
+                    customer.getGender().name()
+            );
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourceException("email already taken");
+        }
+    }
+
+    /**
+     * Inserts the batch in one round trip, in a transaction of its own. The partitioned table has no unique
+     * index on email to {@code ON CONFLICT} on, so when one of the emails is taken, by another writer or
+     * twice within the batch, the whole batch is rolled back and the customers are inserted one by one,
+     * skipping those whose email is taken. The transaction is what makes the rollback whole: the driver
+     * may split a large batch with syncs of its own, which in autocommit would commit the rows before
+     * them. Inside a surrounding transaction the failed batch has aborted the transaction, so the duplicate
+     * is thrown instead.
+     */
+    @Override
+    public int insertCustomers(List<Customer> customers) {
+        var sql = CustomerOutbox.recording(INSERT_SQL, CustomerChange.Type.INSERTED);
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            try {
+                return insertAll(sql, customers);
+            } catch (DuplicateKeyException e) {
+                throw new DuplicateResourceException("email already taken");
+            }
+        }
+
+        try {
+            return transactionTemplate.execute(status -> insertAll(sql, customers));
+        } catch (DuplicateKeyException e) {
+            return insertEachCustomer(sql, customers);
+        }
+    }
+
+    private int insertAll(String sql, List<Customer> customers) {
+        int[] updateCounts = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Customer customer = customers.get(i);
+                ps.setString(1, customer.getName());
+                ps.setString(2, customer.getEmail());
+                ps.setInt(3, customer.getAge());
+                ps.setString(4, customer.getGender().name());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return customers.size();
+            }
+        });
+
+        int inserted = 0;
+        for (int updateCount : updateCounts) {
+            // rewritten batches report SUCCESS_NO_INFO instead of a row count
+            if (updateCount > 0 || updateCount == Statement.SUCCESS_NO_INFO)
+                inserted++;
+        }
+        return inserted;
+    }
+
+    private int insertEachCustomer(String sql, List<Customer> customers) {
+        int inserted = 0;
+        for (Customer customer : customers) {
+            try {
+                inserted += jdbcTemplate.update(
+                        sql,
+                        customer.getName(),
+                        customer.getEmail(),
+                        customer.getAge(),
+                        customer.getGender().name()
+                );
+            } catch (DuplicateKeyException e) {
+                // email already taken, the customer is skipped
+            }
+        }
+        return inserted;
     }
 
     @Override
     public boolean existsPersonWithEmail(String email) {
         var sql = """
                 SELECT count(*)
-                FROM customer
+                FROM customer_email
                 WHERE email = ?
                 """;
 
@@ -61,7 +272,18 @@ public class CustomerJDBCDataAccessService implements CustomerDAO {
     }
 
     @Override
-    public boolean existsPersonWithId(Integer id) {
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        var sql = """
+                SELECT email
+                FROM customer_email
+                WHERE email = ANY(?)
+                """;
+
+        return new HashSet<>(jdbcTemplate.queryForList(sql, String.class, (Object) emails.toArray(String[]::new)));
+    }
+
+    @Override
+    public boolean existsPersonWithId(Long id) {
         var sql = """
                 SELECT count(*)
                 FROM customer
@@ -73,35 +295,27 @@ public class CustomerJDBCDataAccessService implements CustomerDAO {
     }
 
     @Override
-    public void deleteCustomerById(Integer id) {
-        jdbcTemplate.update("DELETE FROM customer WHERE id = ?", id);
+    public void deleteCustomerById(Long id) {
+        jdbcTemplate.update(
+                CustomerOutbox.recording("DELETE FROM customer WHERE id = ?", CustomerChange.Type.DELETED),
+                id
+        );
     }
 
     @Override
     public void updateCustomer(Customer update) {
-        if (update.getName() != null) {
-            jdbcTemplate.update("UPDATE customer SET name=? WHERE id=?;",
-                    update.getName(),
-                    update.getId()
-            );
-        }
-        if (update.getEmail() != null) {
-            jdbcTemplate.update("UPDATE customer SET email=? WHERE id=?;",
-                    update.getEmail(),
-                    update.getId()
-            );
-        }
-        if (update.getAge() != null) {
-            jdbcTemplate.update("UPDATE customer SET age=? WHERE id=?;",
-                    update.getAge(),
-                    update.getId()
-            );
-        }
-        if (update.getGender() != null) {
-            jdbcTemplate.update("UPDATE customer SET gender=? WHERE id=?;",
-                    update.getGender().name(),
-                    update.getId()
-            );
+        Optional<CustomerSparseUpdate> sparseUpdate = CustomerSparseUpdate.of(update);
+        if (sparseUpdate.isEmpty())
+            return;
+
+        int updated;
+        try {
+            updated = jdbcTemplate.update(sparseUpdate.get().sql(), sparseUpdate.get().args().toArray());
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourceException("email already taken");
         }
+        if (updated == 0 && update.getVersion() != null && existsPersonWithId(update.getId()))
+            throw new OptimisticLockingFailureException(
+                    "customer with id [%s] is no longer at version %s".formatted(update.getId(), update.getVersion()));
     }
 }
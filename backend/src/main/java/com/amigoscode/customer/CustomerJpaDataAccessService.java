@@ -1,16 +1,51 @@
 package com.amigoscode.customer;
 
-import lombok.AllArgsConstructor;
+import com.amigoscode.exception.DuplicateResourceException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
-@AllArgsConstructor
 @Repository("jpa")
 public class CustomerJpaDataAccessService implements CustomerDAO {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private final CustomerRepository customerRepository;
+    private final CustomerOutbox customerOutbox;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public CustomerJpaDataAccessService(
+            CustomerRepository customerRepository,
+            CustomerOutbox customerOutbox,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager) {
+        this.customerRepository = customerRepository;
+        this.customerOutbox = customerOutbox;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     @Override
     public List<Customer> selectAllCustomers() {
@@ -18,13 +53,141 @@ public class CustomerJpaDataAccessService implements CustomerDAO {
     }
 
     @Override
-    public Optional<Customer> selectCustomerById(Integer id) {
+    public List<Customer> selectCustomerPage(Long afterId, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+    }
+
+    /**
+     * Streams off a single cursor and detaches every customer once it is handed over, so the persistence
+     * context, which lives as long as the request with open-in-view, never holds more than one of them.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        try (Stream<Customer> customers = customerRepository.streamAllOrderedById()) {
+            customers.forEach(customer -> {
+                entityManager.detach(customer);
+                consumer.accept(customer);
+            });
+        }
+    }
+
+    @Override
+    public List<Customer> selectCustomers(CustomerQuery query) {
+        Long emailOwner = null;
+        if (query.email() != null) {
+            // looked up by id instead, so only the owner's partition is scanned
+            emailOwner = customerRepository.findIdByEmail(query.email()).orElse(null);
+            if (emailOwner == null)
+                return List.of();
+        }
+
+        Sort sort = Sort.by(Sort.Direction.valueOf(query.direction().name()), query.sort().column());
+        if (query.sort() != CustomerQuery.SortField.ID)
+            sort = sort.and(Sort.by("id"));
+
+        return customerRepository.findAll(matching(query, emailOwner), sort);
+    }
+
+    private static Specification<Customer> matching(CustomerQuery query, Long emailOwner) {
+        return (root, criteriaQuery, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (query.name() != null)
+                predicates.add(cb.like(cb.lower(root.get("name")), query.namePattern(), '\\'));
+            if (emailOwner != null)
+                predicates.add(cb.equal(root.get("id"), emailOwner));
+            if (query.minAge() != null)
+                predicates.add(cb.greaterThanOrEqualTo(root.get("age"), query.minAge()));
+            if (query.maxAge() != null)
+                predicates.add(cb.lessThanOrEqualTo(root.get("age"), query.maxAge()));
+            if (query.gender() != null)
+                predicates.add(cb.equal(root.get("gender"), query.gender()));
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, int limit) {
+        return customerRepository.search(query, "%" + CustomerQuery.escapeLike(query) + "%", limit);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
         return customerRepository.findById(id);
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
-        customerRepository.save(customer);
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        return customerRepository.findAllById(ids);
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Long id) {
+        return customerRepository.findVersionById(id);
+    }
+
+    @Override
+    @Transactional
+    public Long insertCustomer(Customer customer) {
+        try {
+            // flushed here rather than at commit, so a duplicate email surfaces inside this try
+            Customer saved = customerRepository.saveAndFlush(customer);
+            customerOutbox.record(CustomerChange.Type.INSERTED, saved);
+            return saved.getId();
+        } catch (DataIntegrityViolationException e) {
+            throw translateUniqueViolation(e);
+        }
+    }
+
+    /**
+     * Inserts the batch in one transaction. When one of the emails is taken, by another writer since the
+     * caller's pre-check or twice within the batch, the batch is rolled back and the customers are inserted
+     * one by one, each in its own transaction, skipping those whose email is taken. Inside a surrounding
+     * transaction the failed flush has marked it for rollback, so the duplicate is thrown instead.
+     */
+    @Override
+    public int insertCustomers(List<Customer> customers) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            try {
+                return insertAll(customers);
+            } catch (DataIntegrityViolationException e) {
+                throw translateUniqueViolation(e);
+            }
+        }
+
+        try {
+            return transactionTemplate.execute(status -> insertAll(customers));
+        } catch (DataIntegrityViolationException e) {
+            if (!isUniqueViolation(e))
+                throw e;
+            return insertEachCustomer(customers);
+        }
+    }
+
+    private int insertAll(List<Customer> customers) {
+        List<Customer> saved = customerRepository.saveAllAndFlush(customers);
+        customerOutbox.recordAll(CustomerChange.Type.INSERTED, saved);
+        return saved.size();
+    }
+
+    private int insertEachCustomer(List<Customer> customers) {
+        int inserted = 0;
+        for (Customer customer : customers) {
+            // the rolled back batch left ids on the customers, which persist would reject
+            Customer retry = new Customer(customer.getName(), customer.getEmail(), customer.getAge(), customer.getGender());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Customer saved = customerRepository.saveAndFlush(retry);
+                    customerOutbox.record(CustomerChange.Type.INSERTED, saved);
+                });
+                inserted++;
+            } catch (DataIntegrityViolationException e) {
+                if (!isUniqueViolation(e))
+                    throw e;
+                // email already taken, the customer is skipped
+            }
+        }
+        return inserted;
     }
 
     @Override
@@ -33,17 +196,63 @@ public class CustomerJpaDataAccessService implements CustomerDAO {
     }
 
     @Override
-    public boolean existsPersonWithId(Integer id) {
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return customerRepository.findExistingEmails(emails);
+    }
+
+    @Override
+    public boolean existsPersonWithId(Long id) {
         return customerRepository.existsById(id);
     }
 
     @Override
-    public void deleteCustomerById(Integer id) {
-        customerRepository.deleteById(id);
+    @Transactional
+    public void deleteCustomerById(Long id) {
+        customerRepository.findById(id).ifPresent(customer -> {
+            customerRepository.delete(customer);
+            customerOutbox.record(CustomerChange.Type.DELETED, customer);
+        });
     }
 
+    /**
+     * Writes only the non-null fields of {@code update}, checked against its version, with the same single
+     * statement as the JDBC store instead of loading the customer first: the service has already read it,
+     * and without open-in-view a second {@code findById} would cost another SELECT. The persistence context
+     * is cleared afterwards, as {@code @Modifying(clearAutomatically = true)} would, so no stale copy of the
+     * customer outlives the statement.
+     */
     @Override
+    @Transactional
     public void updateCustomer(Customer update) {
-        customerRepository.save(update);
+        Optional<CustomerSparseUpdate> sparseUpdate = CustomerSparseUpdate.of(update);
+        if (sparseUpdate.isEmpty())
+            return;
+
+        Query query = entityManager.createNativeQuery(sparseUpdate.get().sql());
+        List<Object> args = sparseUpdate.get().args();
+        for (int i = 0; i < args.size(); i++)
+            query.setParameter(i + 1, args.get(i));
+        int updated;
+        try {
+            updated = query.executeUpdate();
+        } catch (PersistenceException e) {
+            // the shared EntityManager, unlike the repository, leaves exceptions untranslated
+            throw isUniqueViolation(e) ? new DuplicateResourceException("email already taken") : e;
+        } finally {
+            entityManager.clear();
+        }
+        if (updated == 0 && update.getVersion() != null && existsPersonWithId(update.getId()))
+            throw new OptimisticLockingFailureException(
+                    "customer with id [%s] is no longer at version %s".formatted(update.getId(), update.getVersion()));
+    }
+
+    private static RuntimeException translateUniqueViolation(DataIntegrityViolationException e) {
+        return isUniqueViolation(e) ? new DuplicateResourceException("email already taken") : e;
+    }
+
+    // the customer_email key, maintained by a trigger, is the only unique key a save can violate
+    private static boolean isUniqueViolation(RuntimeException e) {
+        return NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLException sqlException
+                && UNIQUE_VIOLATION.equals(sqlException.getSQLState());
     }
 }
@@ -1,59 +1,324 @@
 package com.amigoscode.customer;
 
+import com.amigoscode.exception.DuplicateResourceException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
+/**
+ * Concurrent in-memory customer store. Ids come from a dense sequence, so customers sit in an array
+ * indexed by id, made of fixed-size chunks that are added as the sequence grows and never copied; a
+ * lookup is two array reads and keyset pagination is a scan from the slot after the cursor. A hash
+ * index by email enforces email uniqueness. Reads are lock-free; updates and deletes of the same id
+ * are serialized on a striped lock. Stored customers are read-only snapshots that every write replaces,
+ * so a scan never sees a half-applied update; callers get plain copies they are free to modify. Writes are not recorded in the change outbox, which lives in the database; run the jdbc or jpa
+ * store when the feed is needed.
+ */
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDAO {
 
-    private static final List<Customer> customers;
+    private static final int LOCK_STRIPES = 64;
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    // pg_trgm's default word_similarity_threshold
+    private static final double SEARCH_SIMILARITY_THRESHOLD = 0.6;
 
-    static {
-        customers = new ArrayList<>(List.of(
-                new Customer(1, "alex", "alex@gmail.com", 21, Gender.MALE),
-                new Customer(2, "jamila", "jamila@gmail.com", 19, Gender.FEMALE)
-        ));
+    // chunk i holds ids i * CHUNK_SIZE + 1 to (i + 1) * CHUNK_SIZE
+    private final List<AtomicReferenceArray<Customer>> chunks = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final TrigramIndex searchIndex = new TrigramIndex();
+
+    public CustomerListDataAccessService() {
+        for (int i = 0; i < LOCK_STRIPES; i++)
+            locks[i] = new Object();
+
+        insertCustomer(new Customer("alex", "alex@gmail.com", 21, Gender.MALE));
+        insertCustomer(new Customer("jamila", "jamila@gmail.com", 19, Gender.FEMALE));
     }
 
     @Override
     public List<Customer> selectAllCustomers() {
+        return customersAfter(0).map(Customer::copy).toList();
+    }
+
+    @Override
+    public List<Customer> selectCustomerPage(Long afterId, int limit) {
+        return customersAfter(afterId).limit(limit).map(Customer::copy).toList();
+    }
+
+    /**
+     * The stored customers with an id greater than {@code afterId}, in id order.
+     */
+    private Stream<Customer> customersAfter(long afterId) {
+        return LongStream.rangeClosed(Math.max(afterId, 0) + 1, idSequence.get())
+                .mapToObj(this::stored)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public List<Customer> selectCustomers(CustomerQuery query) {
+        String namePrefix = query.name() == null ? null : query.name().toLowerCase(Locale.ROOT);
+        return customersAfter(0)
+                .filter(customer -> namePrefix == null || customer.getName().toLowerCase(Locale.ROOT).startsWith(namePrefix))
+                .filter(customer -> query.email() == null || customer.getEmail().equals(query.email()))
+                .filter(customer -> query.minAge() == null || customer.getAge() >= query.minAge())
+                .filter(customer -> query.maxAge() == null || customer.getAge() <= query.maxAge())
+                .filter(customer -> query.gender() == null || customer.getGender() == query.gender())
+                .sorted(ordering(query))
+                .map(Customer::copy)
+                .toList();
+    }
+
+    private static Comparator<Customer> ordering(CustomerQuery query) {
+        Comparator<Customer> ordering = switch (query.sort()) {
+            case ID -> Comparator.comparing(Customer::getId);
+            case NAME -> Comparator.comparing(Customer::getName);
+            case EMAIL -> Comparator.comparing(Customer::getEmail);
+            case AGE -> Comparator.comparing(Customer::getAge);
+        };
+        if (query.direction() == CustomerQuery.Direction.DESC)
+            ordering = ordering.reversed();
+        return ordering.thenComparing(Customer::getId);
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, int limit) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        Set<String> queryTrigrams = TrigramIndex.trigrams(query);
+
+        return searchIndex.candidates(queryTrigrams).stream()
+                .map(this::stored)
+                .filter(Objects::nonNull)
+                .map(customer -> new SearchHit(customer, Math.max(
+                        TrigramIndex.wordSimilarity(queryTrigrams, customer.getName()),
+                        TrigramIndex.wordSimilarity(queryTrigrams, customer.getEmail()))))
+                .filter(hit -> hit.score() >= SEARCH_SIMILARITY_THRESHOLD
+                        || hit.customer().getName().toLowerCase(Locale.ROOT).contains(needle)
+                        || hit.customer().getEmail().toLowerCase(Locale.ROOT).contains(needle))
+                .sorted(Comparator.comparingDouble(SearchHit::score).reversed()
+                        .thenComparing(hit -> hit.customer().getId()))
+                .limit(limit)
+                .map(hit -> hit.customer().copy())
+                .toList();
+    }
+
+    private record SearchHit(Customer customer, double score) {
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        customersAfter(0).forEach(customer -> consumer.accept(customer.copy()));
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        return Optional.ofNullable(stored(id)).map(Customer::copy);
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        List<Customer> customers = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Customer customer = stored(id);
+            if (customer != null)
+                customers.add(customer.copy());
+        }
         return customers;
     }
 
     @Override
-    public Optional<Customer> selectCustomerById(Integer id) {
-        return customers.stream()
-                .filter(customer -> customer.getId().equals(id))
-                .findFirst();
+    public Optional<Long> selectCustomerVersion(Long id) {
+        return Optional.ofNullable(stored(id)).map(Customer::getVersion);
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
-        customers.add(customer);
+    public Long insertCustomer(Customer customer) {
+        long id = idSequence.incrementAndGet();
+        // claiming the email first keeps two concurrent inserts from both getting it
+        if (idsByEmail.putIfAbsent(customer.getEmail(), id) != null)
+            throw new DuplicateResourceException("email already taken");
+
+        customer.setId(id);
+        customer.setVersion(0L);
+        chunkFor(id).set(slot(id), new ReadOnlyCustomer(customer));
+        searchIndex.add(id, customer.getName(), customer.getEmail());
+        return id;
+    }
+
+    @Override
+    public int insertCustomers(List<Customer> customers) {
+        int inserted = 0;
+        for (Customer customer : customers) {
+            try {
+                insertCustomer(customer);
+                inserted++;
+            } catch (DuplicateResourceException ignored) {
+                // skipped, same as the JDBC implementation
+            }
+        }
+        return inserted;
     }
 
     @Override
     public boolean existsPersonWithEmail(String email) {
-        return customers.stream()
-                .anyMatch(c -> c.getEmail().equals(email));
+        return idsByEmail.containsKey(email);
     }
 
     @Override
-    public boolean existsPersonWithId(Integer id) {
-        return customers.stream()
-                .anyMatch(c -> c.getId().equals(id));
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return emails.stream()
+                .filter(idsByEmail::containsKey)
+                .collect(Collectors.toSet());
     }
 
     @Override
-    public void deleteCustomerById(Integer id) {
-        customers.removeIf(c -> c.getId().equals(id));
+    public boolean existsPersonWithId(Long id) {
+        return stored(id) != null;
+    }
+
+    @Override
+    public void deleteCustomerById(Long id) {
+        synchronized (lockFor(id)) {
+            AtomicReferenceArray<Customer> chunk = existingChunkFor(id);
+            Customer removed = chunk == null ? null : chunk.getAndSet(slot(id), null);
+            if (removed != null) {
+                idsByEmail.remove(removed.getEmail(), id);
+                searchIndex.remove(id, removed.getName(), removed.getEmail());
+            }
+        }
     }
 
     @Override
     public void updateCustomer(Customer update) {
-        customers.add(update); // this will add a second customer to the list - Wrong implementation
+        Long id = update.getId();
+        synchronized (lockFor(id)) {
+            Customer current = stored(id);
+            if (current == null)
+                return;
+            if (update.getVersion() != null && !update.getVersion().equals(current.getVersion()))
+                throw new OptimisticLockingFailureException(
+                        "customer with id [%s] is no longer at version %s".formatted(id, update.getVersion()));
+
+            Customer updated = current.copy();
+            updated.setVersion(current.getVersion() + 1);
+            if (update.getName() != null)
+                updated.setName(update.getName());
+            if (update.getAge() != null)
+                updated.setAge(update.getAge());
+            if (update.getGender() != null)
+                updated.setGender(update.getGender());
+
+            String previousEmail = current.getEmail();
+            boolean emailChanged = update.getEmail() != null && !update.getEmail().equals(previousEmail);
+            if (emailChanged) {
+                if (idsByEmail.putIfAbsent(update.getEmail(), id) != null)
+                    throw new DuplicateResourceException("email already taken");
+                updated.setEmail(update.getEmail());
+            }
+
+            chunkFor(id).set(slot(id), new ReadOnlyCustomer(updated));
+            if (emailChanged)
+                idsByEmail.remove(previousEmail, id);
+            if (emailChanged || !updated.getName().equals(current.getName())) {
+                searchIndex.remove(id, current.getName(), current.getEmail());
+                searchIndex.add(id, updated.getName(), updated.getEmail());
+            }
+        }
+    }
+
+    private Object lockFor(Long id) {
+        return locks[Math.floorMod(id, LOCK_STRIPES)];
+    }
+
+    private Customer stored(Long id) {
+        AtomicReferenceArray<Customer> chunk = existingChunkFor(id);
+        return chunk == null ? null : chunk.get(slot(id));
+    }
+
+    private AtomicReferenceArray<Customer> existingChunkFor(Long id) {
+        if (id == null || id < 1)
+            return null;
+        long chunk = (id - 1) >>> CHUNK_BITS;
+        return chunk < chunks.size() ? chunks.get((int) chunk) : null;
+    }
+
+    private AtomicReferenceArray<Customer> chunkFor(long id) {
+        AtomicReferenceArray<Customer> chunk = existingChunkFor(id);
+        if (chunk != null)
+            return chunk;
+        synchronized (chunks) {
+            int needed = (int) ((id - 1) >>> CHUNK_BITS) + 1;
+            while (chunks.size() < needed)
+                chunks.add(new AtomicReferenceArray<>(CHUNK_SIZE));
+        }
+        return existingChunkFor(id);
+    }
+
+    private static int slot(long id) {
+        return (int) ((id - 1) & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * A stored customer. Never modified once stored, so concurrent readers can copy it without a lock.
+     */
+    private static final class ReadOnlyCustomer extends Customer {
+
+        ReadOnlyCustomer(Customer customer) {
+            super(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge(),
+                    customer.getGender(), customer.getVersion());
+        }
+
+        @Override
+        public void setId(Long id) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setEmail(String email) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setAge(Integer age) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setGender(Gender gender) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setVersion(Long version) {
+            throw readOnly();
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("stored customers are read-only");
+        }
     }
 }
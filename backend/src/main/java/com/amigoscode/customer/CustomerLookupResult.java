@@ -0,0 +1,10 @@
+package com.amigoscode.customer;
+
+import java.util.List;
+
+/**
+ * Customers looked up by id, in the order their ids were requested. Ids without a customer are listed
+ * in {@code missingIds}, also in request order.
+ */
+public record CustomerLookupResult(List<Customer> customers, List<Long> missingIds) {
+}
@@ -0,0 +1,166 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.DuplicateResourceException;
+import com.amigoscode.exception.PreconditionFailedException;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Times calls to {@link CustomerService} and {@link CustomerDAO} methods as {@code customer.service} and
+ * {@code customer.dao}, tagged with the method, the outcome and, for DAOs, the qualifier of the
+ * implementation. A DAO lookup returning an empty {@link Optional} counts as {@code not-found}.
+ * <p>
+ * This is a plain interceptor rather than an {@code @Aspect}: it skips the reflective advice call and
+ * join point allocation, and looks timers up by class and method without building a key, so the
+ * instrumentation stays cheap enough to leave on in production.
+ */
+public class CustomerMetricsInterceptor implements MethodInterceptor {
+
+    public static final String SERVICE_TIMER = "customer.service";
+    public static final String DAO_TIMER = "customer.dao";
+
+    enum Outcome {
+        SUCCESS("success"),
+        NOT_FOUND("not-found"),
+        DUPLICATE("duplicate"),
+        VALIDATION_ERROR("validation-error"),
+        PRECONDITION_FAILED("precondition-failed"),
+        ERROR("error");
+
+        private static final Outcome[] VALUES = values();
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        static Outcome of(Throwable e) {
+            if (e instanceof ResourceNotFoundException) {
+                return NOT_FOUND;
+            }
+            if (e instanceof DuplicateResourceException || e instanceof DuplicateKeyException) {
+                return DUPLICATE;
+            }
+            if (e instanceof RequestValidationException) {
+                return VALIDATION_ERROR;
+            }
+            if (e instanceof PreconditionFailedException || e instanceof OptimisticLockingFailureException) {
+                return PRECONDITION_FAILED;
+            }
+            return ERROR;
+        }
+    }
+
+    private final String name;
+    private final boolean tagDao;
+    private final Supplier<MeterRegistry> meterRegistry;
+    private final ClassValue<ConcurrentMap<Method, MethodTimers>> timers = new ClassValue<>() {
+        @Override
+        protected ConcurrentMap<Method, MethodTimers> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private CustomerMetricsInterceptor(String name, boolean tagDao, Supplier<MeterRegistry> meterRegistry) {
+        this.name = name;
+        this.tagDao = tagDao;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * The registry is only asked for when a timer is first registered, so the advisors can be created
+     * before the registry has been configured.
+     */
+    public static CustomerMetricsInterceptor forService(Supplier<MeterRegistry> meterRegistry) {
+        return new CustomerMetricsInterceptor(SERVICE_TIMER, false, meterRegistry);
+    }
+
+    public static CustomerMetricsInterceptor forDao(Supplier<MeterRegistry> meterRegistry) {
+        return new CustomerMetricsInterceptor(DAO_TIMER, true, meterRegistry);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.SUCCESS;
+        try {
+            Object result = invocation.proceed();
+            if (result instanceof Optional<?> optional && optional.isEmpty()) {
+                outcome = Outcome.NOT_FOUND;
+            }
+            return result;
+        } catch (Throwable e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Class<?> targetClass = invocation.getThis() != null
+                    ? invocation.getThis().getClass()
+                    : invocation.getMethod().getDeclaringClass();
+            timers.get(targetClass)
+                    .computeIfAbsent(invocation.getMethod(), method -> new MethodTimers(targetClass, method))
+                    .get(outcome)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String qualifier(Class<?> type) {
+        Repository repository = AnnotationUtils.findAnnotation(type, Repository.class);
+        return repository != null && StringUtils.hasText(repository.value())
+                ? repository.value()
+                : type.getSimpleName();
+    }
+
+    /**
+     * Timers of one method on one class, registered on first use of each outcome.
+     */
+    private class MethodTimers {
+
+        private final Class<?> targetClass;
+        private final String method;
+        private final AtomicReferenceArray<Timer> byOutcome = new AtomicReferenceArray<>(Outcome.VALUES.length);
+
+        MethodTimers(Class<?> targetClass, Method method) {
+            this.targetClass = targetClass;
+            this.method = method.getName();
+        }
+
+        Timer get(Outcome outcome) {
+            Timer timer = byOutcome.get(outcome.ordinal());
+            if (timer == null) {
+                // registering twice is harmless, the registry hands back the same timer
+                timer = register(outcome);
+                byOutcome.set(outcome.ordinal(), timer);
+            }
+            return timer;
+        }
+
+        private Timer register(Outcome outcome) {
+            Timer.Builder builder = Timer.builder(name)
+                    .tag("method", method)
+                    .tag("outcome", outcome.tag);
+            if (tagDao) {
+                builder.tag("dao", qualifier(targetClass));
+            }
+            return builder.register(meterRegistry.get());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactional outbox of customer changes in the {@code customer_change} table. Writers record a change
+ * in the same transaction as the change itself, either through {@link #recording(String, CustomerChange.Type)}
+ * or {@link #record(CustomerChange.Type, Customer)}.
+ * <p>
+ * Changes are read in {@code (tx_id, id)} order and only once every older transaction has finished, so a
+ * cursor never moves past a change that commits later. Changes older than {@code customer.changes.retention}
+ * are pruned every {@code customer.changes.prune-interval}.
+ */
+@Slf4j
+@Repository
+public class CustomerOutbox {
+
+    private static final int PRUNE_BATCH_SIZE = 10_000;
+    private static final String COLUMNS = "type, customer_id, name, email, age, gender, version";
+    private static final String RECORD_SQL = "INSERT INTO customer_change (" + COLUMNS + ") VALUES (?,?,?,?,?,?,?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+    private final Duration pruneInterval;
+    private final ScheduledExecutorService pruneExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-outbox-pruner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CustomerOutbox(
+            JdbcTemplate jdbcTemplate,
+            @Value("${customer.changes.retention}") Duration retention,
+            @Value("${customer.changes.prune-interval}") Duration pruneInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+        this.pruneInterval = pruneInterval;
+    }
+
+    @PostConstruct
+    void schedulePruning() {
+        pruneExecutor.scheduleWithFixedDelay(
+                this::pruneQuietly, pruneInterval.toMillis(), pruneInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pruneExecutor.shutdownNow();
+    }
+
+    /**
+     * Wraps a single-row or multi-row {@code INSERT}, {@code UPDATE} or {@code DELETE} on {@code customer},
+     * written without a {@code RETURNING} clause, so that every affected row is also recorded as a change.
+     * The statement stays atomic and its update count is the number of affected customers.
+     */
+    public static String recording(String statement, CustomerChange.Type type) {
+        return """
+                WITH changed AS (%s RETURNING id, name, email, age, gender, version)
+                INSERT INTO customer_change (%s)
+                SELECT '%s', id, name, email, age, gender, version FROM changed
+                """.formatted(statement.strip(), COLUMNS, type.name());
+    }
+
+    /**
+     * Records a change; must run inside the transaction that made it.
+     */
+    void record(CustomerChange.Type type, Customer customer) {
+        jdbcTemplate.update(RECORD_SQL, ps -> setChange(ps, type, customer));
+    }
+
+    /**
+     * Records the same kind of change to several customers as one JDBC batch, which the driver sends
+     * as multi-row inserts when {@code reWriteBatchedInserts} is on.
+     */
+    void recordAll(CustomerChange.Type type, List<Customer> customers) {
+        jdbcTemplate.batchUpdate(RECORD_SQL, customers, customers.size(),
+                (ps, customer) -> setChange(ps, type, customer));
+    }
+
+    private static void setChange(PreparedStatement ps, CustomerChange.Type type, Customer customer)
+            throws SQLException {
+        ps.setString(1, type.name());
+        ps.setObject(2, customer.getId(), Types.BIGINT);
+        ps.setString(3, customer.getName());
+        ps.setString(4, customer.getEmail());
+        ps.setObject(5, customer.getAge(), Types.INTEGER);
+        ps.setString(6, customer.getGender() != null ? customer.getGender().name() : null);
+        ps.setObject(7, customer.getVersion(), Types.BIGINT);
+    }
+
+    /**
+     * @param since the cursor of the last change seen, {@code null} to start from the oldest retained change
+     */
+    public List<CustomerChange> selectChangesAfter(String since, int limit) {
+        var sql = """
+                SELECT id, tx_id::text AS tx_id, type, customer_id, name, email, age, gender, version, changed_at
+                FROM customer_change
+                WHERE (tx_id, id) > (CAST(? AS xid8), ?)
+                  AND tx_id < pg_snapshot_xmin(pg_current_snapshot())
+                ORDER BY tx_id, id
+                LIMIT ?
+                """;
+        long[] position = parseCursor(since);
+
+        return jdbcTemplate.query(sql, CustomerOutbox::mapChange, Long.toString(position[0]), position[1], limit);
+    }
+
+    /**
+     * Deletes changes recorded before {@code cutoff}, in batches to keep each transaction short.
+     *
+     * @return the number of changes deleted
+     */
+    int pruneChangesBefore(Instant cutoff) {
+        var sql = """
+                DELETE FROM customer_change
+                WHERE id IN (SELECT id FROM customer_change WHERE changed_at < ? LIMIT ?)
+                """;
+        OffsetDateTime before = OffsetDateTime.ofInstant(cutoff, ZoneOffset.UTC);
+
+        int pruned = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, before, PRUNE_BATCH_SIZE);
+            pruned += deleted;
+        } while (deleted == PRUNE_BATCH_SIZE);
+        return pruned;
+    }
+
+    private void pruneQuietly() {
+        try {
+            int pruned = pruneChangesBefore(Instant.now().minus(retention));
+            log.info("Pruned {} customer changes older than {}", pruned, retention);
+        } catch (RuntimeException e) {
+            log.warn("Could not prune customer changes", e);
+        }
+    }
+
+    static String cursor(long txId, long id) {
+        return txId + "-" + id;
+    }
+
+    static long[] parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank())
+            return new long[]{0, 0};
+
+        int separator = cursor.indexOf('-');
+        try {
+            if (separator > 0)
+                return new long[]{
+                        Long.parseLong(cursor.substring(0, separator)),
+                        Long.parseLong(cursor.substring(separator + 1))
+                };
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new RequestValidationException("invalid change cursor [%s]".formatted(cursor));
+    }
+
+    private static CustomerChange mapChange(ResultSet rs, int rowNum) throws SQLException {
+        CustomerChange.Type type = CustomerChange.Type.valueOf(rs.getString("type"));
+        long customerId = rs.getLong("customer_id");
+        Customer customer = type == CustomerChange.Type.DELETED ? null : new Customer(
+                customerId,
+                rs.getString("name"),
+                rs.getString("email"),
+                rs.getInt("age"),
+                CustomerRowMapper.gender(rs.getString("gender")),
+                rs.getLong("version")
+        );
+
+        return new CustomerChange(
+                cursor(Long.parseLong(rs.getString("tx_id")), rs.getLong("id")),
+                type,
+                customerId,
+                customer,
+                rs.getObject("changed_at", OffsetDateTime.class).toInstant()
+        );
+    }
+}
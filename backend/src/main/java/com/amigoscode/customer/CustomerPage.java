@@ -0,0 +1,10 @@
+package com.amigoscode.customer;
+
+import java.util.List;
+
+/**
+ * A page of customers ordered by id. {@code nextCursor} is the value to pass as {@code after}
+ * to fetch the next page, or {@code null} when this is the last page.
+ */
+public record CustomerPage(List<Customer> customers, Long nextCursor) {
+}
@@ -0,0 +1,244 @@
+package com.amigoscode.customer;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Reads and writes customers as {@code application/x-protobuf}, following {@code src/main/proto/customer.proto}.
+ * Encoded by hand with protobuf's coded streams instead of through generated message classes, so a customer
+ * goes to the response without being copied into a message object first, and a list is written one customer
+ * at a time. Lists of customers are written as a {@code CustomerList}.
+ */
+public class CustomerProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int LENGTH_DELIMITED = WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int VARINT = WireFormat.WIRETYPE_VARINT;
+
+    // Customer
+    private static final int CUSTOMER_ID = 1 << 3 | VARINT;
+    private static final int CUSTOMER_NAME = 2 << 3 | LENGTH_DELIMITED;
+    private static final int CUSTOMER_EMAIL = 3 << 3 | LENGTH_DELIMITED;
+    private static final int CUSTOMER_AGE = 4 << 3 | VARINT;
+    private static final int CUSTOMER_GENDER = 5 << 3 | VARINT;
+    // CustomerList
+    private static final int LIST_CUSTOMERS = 1;
+    // CustomerRegistrationRequest and CustomerUpdateRequest
+    private static final int REQUEST_NAME = 1 << 3 | LENGTH_DELIMITED;
+    private static final int REQUEST_EMAIL = 2 << 3 | LENGTH_DELIMITED;
+    private static final int REQUEST_AGE = 3 << 3 | VARINT;
+    private static final int REQUEST_GENDER = 4 << 3 | VARINT;
+
+    public CustomerProtobufHttpMessageConverter() {
+        super(APPLICATION_PROTOBUF);
+    }
+
+    // MVC asks with the class of the value, which may be a Customer subclass such as a Hibernate proxy
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Customer.class.isAssignableFrom(clazz)
+                || clazz == CustomerRegistrationRequest.class
+                || clazz == CustomerUpdateRequest.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return type instanceof Class<?> clazz && supports(clazz) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return (supports(clazz) || isCustomerList(type)) && canWrite(mediaType);
+    }
+
+    /**
+     * MVC looks up the producible media types by the class of the value alone, which for a list says
+     * nothing about its elements; {@link #canWrite(Type, Class, MediaType)} has already checked them.
+     */
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz) ? getSupportedMediaTypes() : super.getSupportedMediaTypes(clazz);
+    }
+
+    private static boolean isCustomerList(@Nullable Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolved.toClass()) && Customer.class.isAssignableFrom(resolved.getGeneric(0).toClass());
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException {
+        return readInternal((Class<?>) type, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(inputMessage.getBody());
+        try {
+            if (Customer.class.isAssignableFrom(clazz))
+                return readCustomer(input);
+            if (clazz == CustomerRegistrationRequest.class)
+                return readRegistrationRequest(input);
+            return readUpdateRequest(input);
+        } catch (InvalidProtocolBufferException e) {
+            throw new HttpMessageNotReadableException("Invalid protobuf " + clazz.getSimpleName(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object body, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody(), BUFFER_SIZE);
+        if (body instanceof Customer customer) {
+            writeCustomer(output, customer);
+        } else if (body instanceof CustomerRegistrationRequest request) {
+            writeString(output, REQUEST_NAME, request.name());
+            writeString(output, REQUEST_EMAIL, request.email());
+            writeInt(output, REQUEST_AGE, request.age());
+            writeGender(output, REQUEST_GENDER, request.gender());
+        } else if (body instanceof CustomerUpdateRequest request) {
+            writeString(output, REQUEST_NAME, request.name());
+            writeString(output, REQUEST_EMAIL, request.email());
+            writeInt(output, REQUEST_AGE, request.age());
+        } else {
+            for (Object customer : (List<?>) body) {
+                // each customer is a length-prefixed CustomerList.customers entry
+                output.writeTag(LIST_CUSTOMERS, LENGTH_DELIMITED);
+                output.writeUInt32NoTag(customerSize((Customer) customer));
+                writeCustomer(output, (Customer) customer);
+            }
+        }
+        output.flush();
+    }
+
+    private static void writeCustomer(CodedOutputStream output, Customer customer) throws IOException {
+        if (customer.getId() != null) {
+            output.writeUInt32NoTag(CUSTOMER_ID);
+            output.writeInt64NoTag(customer.getId());
+        }
+        writeString(output, CUSTOMER_NAME, customer.getName());
+        writeString(output, CUSTOMER_EMAIL, customer.getEmail());
+        writeInt(output, CUSTOMER_AGE, customer.getAge());
+        writeGender(output, CUSTOMER_GENDER, customer.getGender());
+    }
+
+    private static int customerSize(Customer customer) {
+        int size = 0;
+        if (customer.getId() != null)
+            size += CodedOutputStream.computeUInt32SizeNoTag(CUSTOMER_ID)
+                    + CodedOutputStream.computeInt64SizeNoTag(customer.getId());
+        size += stringSize(CUSTOMER_NAME, customer.getName());
+        size += stringSize(CUSTOMER_EMAIL, customer.getEmail());
+        size += intSize(CUSTOMER_AGE, customer.getAge());
+        if (customer.getGender() != null)
+            size += intSize(CUSTOMER_GENDER, genderNumber(customer.getGender()));
+        return size;
+    }
+
+    private static void writeString(CodedOutputStream output, int tag, @Nullable String value) throws IOException {
+        if (value != null) {
+            output.writeUInt32NoTag(tag);
+            output.writeStringNoTag(value);
+        }
+    }
+
+    private static void writeInt(CodedOutputStream output, int tag, @Nullable Integer value) throws IOException {
+        if (value != null) {
+            output.writeUInt32NoTag(tag);
+            output.writeInt32NoTag(value);
+        }
+    }
+
+    private static void writeGender(CodedOutputStream output, int tag, @Nullable Gender gender) throws IOException {
+        if (gender != null)
+            writeInt(output, tag, genderNumber(gender));
+    }
+
+    private static int stringSize(int tag, @Nullable String value) {
+        return value == null
+                ? 0
+                : CodedOutputStream.computeUInt32SizeNoTag(tag) + CodedOutputStream.computeStringSizeNoTag(value);
+    }
+
+    private static int intSize(int tag, @Nullable Integer value) {
+        return value == null
+                ? 0
+                : CodedOutputStream.computeUInt32SizeNoTag(tag) + CodedOutputStream.computeInt32SizeNoTag(value);
+    }
+
+    // GENDER_UNSPECIFIED is 0, the values follow in declaration order
+    private static int genderNumber(Gender gender) {
+        return gender.ordinal() + 1;
+    }
+
+    @Nullable
+    private static Gender gender(int number) {
+        Gender[] genders = Gender.values();
+        return number > 0 && number <= genders.length ? genders[number - 1] : null;
+    }
+
+    private static Customer readCustomer(CodedInputStream input) throws IOException {
+        Customer customer = new Customer();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+                case CUSTOMER_ID -> customer.setId(input.readInt64());
+                case CUSTOMER_NAME -> customer.setName(input.readStringRequireUtf8());
+                case CUSTOMER_EMAIL -> customer.setEmail(input.readStringRequireUtf8());
+                case CUSTOMER_AGE -> customer.setAge(input.readInt32());
+                case CUSTOMER_GENDER -> customer.setGender(gender(input.readEnum()));
+                default -> input.skipField(tag);
+            }
+        }
+        return customer;
+    }
+
+    private static CustomerRegistrationRequest readRegistrationRequest(CodedInputStream input) throws IOException {
+        String name = null;
+        String email = null;
+        Integer age = null;
+        Gender gender = null;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+                case REQUEST_NAME -> name = input.readStringRequireUtf8();
+                case REQUEST_EMAIL -> email = input.readStringRequireUtf8();
+                case REQUEST_AGE -> age = input.readInt32();
+                case REQUEST_GENDER -> gender = gender(input.readEnum());
+                default -> input.skipField(tag);
+            }
+        }
+        return new CustomerRegistrationRequest(name, email, age, gender);
+    }
+
+    private static CustomerUpdateRequest readUpdateRequest(CodedInputStream input) throws IOException {
+        String name = null;
+        String email = null;
+        Integer age = null;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+                case REQUEST_NAME -> name = input.readStringRequireUtf8();
+                case REQUEST_EMAIL -> email = input.readStringRequireUtf8();
+                case REQUEST_AGE -> age = input.readInt32();
+                default -> input.skipField(tag);
+            }
+        }
+        return new CustomerUpdateRequest(name, email, age);
+    }
+}
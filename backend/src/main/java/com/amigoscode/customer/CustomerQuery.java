@@ -0,0 +1,63 @@
+package com.amigoscode.customer;
+
+import java.util.Locale;
+
+/**
+ * Filters and ordering for a customer search. Every filter is optional: {@code name} is a
+ * case-insensitive prefix, {@code minAge} and {@code maxAge} are inclusive. Results are ordered by
+ * {@code sort} (id when absent) in {@code direction} (ascending when absent), ties broken by id.
+ */
+public record CustomerQuery(
+        String name,
+        String email,
+        Integer minAge,
+        Integer maxAge,
+        Gender gender,
+        SortField sort,
+        Direction direction) {
+
+    public enum SortField {
+        ID("id"), NAME("name"), EMAIL("email"), AGE("age");
+
+        private final String column;
+
+        SortField(String column) {
+            this.column = column;
+        }
+
+        /**
+         * The column, which is also the entity property, to order by.
+         */
+        public String column() {
+            return column;
+        }
+    }
+
+    public enum Direction {
+        ASC, DESC
+    }
+
+    public CustomerQuery {
+        if (sort == null)
+            sort = SortField.ID;
+        if (direction == null)
+            direction = Direction.ASC;
+    }
+
+    /**
+     * The {@code name} prefix as a lower-cased {@code LIKE} pattern, with {@code \} as the escape character.
+     */
+    public String namePattern() {
+        return escapeLike(name.toLowerCase(Locale.ROOT)) + "%";
+    }
+
+    /**
+     * Escapes {@code value} for a {@code LIKE} pattern with {@code \} as the escape character.
+     */
+    public static String escapeLike(String value) {
+        return value
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -1,9 +1,52 @@
 package com.amigoscode.customer;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public interface CustomerRepository extends JpaRepository<Customer, Integer> {
+public interface CustomerRepository extends JpaRepository<Customer, Long>, JpaSpecificationExecutor<Customer> {
 
-    boolean existsCustomerByEmail(String email);
+    // email lookups go through customer_email, which is partitioned on email, see V9
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM customer_email WHERE email = :email)", nativeQuery = true)
+    boolean existsCustomerByEmail(@Param("email") String email);
+
+    @Query(value = "SELECT email FROM customer_email WHERE email IN :emails", nativeQuery = true)
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query(value = "SELECT customer_id FROM customer_email WHERE email = :email", nativeQuery = true)
+    Optional<Long> findIdByEmail(@Param("email") String email);
+
+    @Query(value = """
+            SELECT *
+            FROM customer
+            WHERE name ILIKE :pattern OR email ILIKE :pattern OR :q <% name OR :q <% email
+            ORDER BY greatest(word_similarity(:q, name), word_similarity(:q, email)) DESC, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Customer> search(@Param("q") String q, @Param("pattern") String pattern, @Param("limit") int limit);
+
+    @Query("SELECT c.version FROM Customer c WHERE c.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Must be consumed inside a transaction, where the driver fetches {@link CustomerDAO#STREAM_PAGE_SIZE}
+     * rows at a time, and closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + CustomerDAO.STREAM_PAGE_SIZE))
+    @Query("SELECT c FROM Customer c ORDER BY c.id")
+    Stream<Customer> streamAllOrderedById();
 }
@@ -1,22 +1,96 @@
 package com.amigoscode.customer;
 
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Component
 public class CustomerRowMapper implements RowMapper<Customer> {
 
+    private static final Gender[] GENDERS = Gender.values();
+
     @Override
     public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
         return new Customer(
-                rs.getInt("id"),
+                rs.getLong("id"),
                 rs.getString("name"),
                 rs.getString("email"),
                 rs.getInt("age"),
-                Gender.valueOf(rs.getString("gender"))
+                gender(rs.getString("gender")),
+                rs.getLong("version")
         );
     }
+
+    /**
+     * Maps every row of the result set. Column positions are resolved once per result set
+     * rather than by label for every column of every row.
+     */
+    public ResultSetExtractor<List<Customer>> listExtractor() {
+        return rs -> {
+            Columns columns = new Columns(rs);
+            List<Customer> customers = new ArrayList<>();
+            while (rs.next())
+                customers.add(columns.map(rs));
+            return customers;
+        };
+    }
+
+    /**
+     * Hands every row to the consumer as it is read, resolving column positions on the first row.
+     */
+    public RowCallbackHandler rowHandler(Consumer<Customer> consumer) {
+        return new RowCallbackHandler() {
+            private Columns columns;
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                if (columns == null)
+                    columns = new Columns(rs);
+                consumer.accept(columns.map(rs));
+            }
+        };
+    }
+
+    static Gender gender(String name) {
+        for (Gender gender : GENDERS)
+            if (gender.name().equals(name))
+                return gender;
+        throw new IllegalArgumentException("unknown gender [%s]".formatted(name));
+    }
+
+    private static final class Columns {
+        private final int id;
+        private final int name;
+        private final int email;
+        private final int age;
+        private final int gender;
+        private final int version;
+
+        Columns(ResultSet rs) throws SQLException {
+            id = rs.findColumn("id");
+            name = rs.findColumn("name");
+            email = rs.findColumn("email");
+            age = rs.findColumn("age");
+            gender = rs.findColumn("gender");
+            version = rs.findColumn("version");
+        }
+
+        Customer map(ResultSet rs) throws SQLException {
+            return new Customer(
+                    rs.getLong(id),
+                    rs.getString(name),
+                    rs.getString(email),
+                    rs.getInt(age),
+                    gender(rs.getString(gender)),
+                    rs.getLong(version)
+            );
+        }
+    }
 }
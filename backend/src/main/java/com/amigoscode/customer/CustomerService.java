@@ -1,73 +1,285 @@
 package com.amigoscode.customer;
 
+import com.amigoscode.SingleFlight;
+import com.amigoscode.config.ReplicaRoutingDataSource;
 import com.amigoscode.exception.DuplicateResourceException;
+import com.amigoscode.exception.PreconditionFailedException;
 import com.amigoscode.exception.RequestValidationException;
 import com.amigoscode.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
+/**
+ * Read-only methods run in read-only transactions, which the {@code ReplicaRoutingDataSource} serves
+ * from a replica when replicas are configured.
+ * <p>
+ * With {@code customer.write-behind.enabled}, unconditional name and age updates are queued in the
+ * {@link CustomerWriteBehind} instead of being written right away, and customers are read with their
+ * pending updates applied.
+ * <p>
+ * Concurrent lookups of the same customer, and concurrent registrations with the same email, are
+ * coalesced into one DAO call, see {@link SingleFlight}.
+ */
 @Service
 public class CustomerService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_LOOKUP_SIZE = 1000;
+    static final int IMPORT_CHUNK_SIZE = 1000;
+    public static final int MAX_SEARCH_LIMIT = 100;
+    // shorter queries produce no trigram the indexes can narrow down on
+    public static final int MIN_SEARCH_LENGTH = 3;
+
     private final CustomerDAO customerDAO;
+    // null unless write-behind is enabled
+    private final CustomerWriteBehind writeBehind;
+    private final SingleFlight<Lookup, Customer> customerLookups;
+    private final SingleFlight<String, Long> registrations;
+
+    /**
+     * Callers pinned to the primary, as after their own writes, must not share a lookup that a replica
+     * serves, so the pin is part of the key.
+     */
+    private record Lookup(Long id, boolean primary) {
+    }
 
     public CustomerService(@Qualifier("jpa") CustomerDAO customerDAO) {
+        this(customerDAO, null, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public CustomerService(
+            @Qualifier("jpa") CustomerDAO customerDAO,
+            @Nullable CustomerWriteBehind writeBehind,
+            MeterRegistry meterRegistry) {
         this.customerDAO = customerDAO;
+        this.writeBehind = writeBehind;
+        this.customerLookups = new SingleFlight<>("getCustomer", meterRegistry);
+        this.registrations = new SingleFlight<>("addCustomer", meterRegistry);
     }
 
+    @Transactional(readOnly = true)
     public List<Customer> getAllCustomers() {
-        return customerDAO.selectAllCustomers();
+        return withPendingUpdates(customerDAO.selectAllCustomers());
+    }
+
+    @Transactional(readOnly = true)
+    public List<Customer> getCustomers(CustomerQuery query) {
+        if (query.minAge() != null && query.maxAge() != null && query.minAge() > query.maxAge())
+            throw new RequestValidationException("minAge must not be greater than maxAge");
+
+        return withPendingUpdates(customerDAO.selectCustomers(query));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Customer> searchCustomers(String query, int limit) {
+        String q = query == null ? "" : query.strip();
+        if (q.length() < MIN_SEARCH_LENGTH)
+            throw new RequestValidationException("search query must be at least %s characters".formatted(MIN_SEARCH_LENGTH));
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT)
+            throw new RequestValidationException("search limit must be between 1 and %s".formatted(MAX_SEARCH_LIMIT));
+
+        return withPendingUpdates(customerDAO.searchCustomers(q, limit));
     }
 
-    public Customer getCustomer(Integer id) {
+    @Transactional(readOnly = true)
+    public CustomerPage getCustomerPage(Long afterId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            throw new RequestValidationException("page size must be between 1 and %s".formatted(MAX_PAGE_SIZE));
+
+        List<Customer> customers = withPendingUpdates(customerDAO.selectCustomerPage(afterId == null ? 0 : afterId, size));
+        Long nextCursor = customers.size() == size ? customers.get(customers.size() - 1).getId() : null;
+        return new CustomerPage(customers, nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        customerDAO.streamAllCustomers(writeBehind == null
+                ? consumer
+                : customer -> consumer.accept(writeBehind.withPendingUpdate(customer)));
+    }
+
+    @Transactional(readOnly = true)
+    public Customer getCustomer(Long id) {
+        Lookup lookup = new Lookup(id, ReplicaRoutingDataSource.isPinnedToPrimary());
+        Customer customer = customerLookups.load(lookup, () -> loadCustomer(id));
+        return writeBehind == null ? customer : writeBehind.withPendingUpdate(customer);
+    }
+
+    private Customer loadCustomer(Long id) {
         return customerDAO.selectCustomerById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("customer with id [%s] not found".formatted(id)));
     }
 
+    /**
+     * Looks the customers up in a single DAO call. Repeated ids are looked up and returned once.
+     */
+    @Transactional(readOnly = true)
+    public CustomerLookupResult getCustomersByIds(List<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids == null ? List.of() : ids);
+        requested.remove(null);
+        if (requested.isEmpty() || requested.size() > MAX_LOOKUP_SIZE)
+            throw new RequestValidationException("between 1 and %s ids must be requested".formatted(MAX_LOOKUP_SIZE));
+
+        Map<Long, Customer> found = new HashMap<>();
+        for (Customer customer : customerDAO.selectCustomersByIds(requested))
+            found.put(customer.getId(), customer);
+
+        List<Customer> customers = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>(requested.size() - found.size());
+        for (Long id : requested) {
+            Customer customer = found.get(id);
+            if (customer == null)
+                missingIds.add(id);
+            else
+                customers.add(writeBehind == null ? customer : writeBehind.withPendingUpdate(customer));
+        }
+        return new CustomerLookupResult(customers, missingIds);
+    }
+
+    /**
+     * A registration arriving while another one with the same email is being inserted waits for it, and
+     * fails as a duplicate if it succeeded or failed as a duplicate, instead of sending an insert bound to
+     * fail. If the other insert failed for any other reason, such as a missing field, it inserts its own.
+     */
     public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
-        if (customerDAO.existsPersonWithEmail(customerRegistrationRequest.email()))
+        Customer customer = new Customer(
+                customerRegistrationRequest.name(),
+                customerRegistrationRequest.email(),
+                customerRegistrationRequest.age(),
+                customerRegistrationRequest.gender()
+        );
+        if (customer.getEmail() == null) {
+            customerDAO.insertCustomer(customer);
+            return;
+        }
+        if (registrations.execute(customer.getEmail(), () -> customerDAO.insertCustomer(customer),
+                DuplicateResourceException.class::isInstance).shared())
             throw new DuplicateResourceException("email already taken");
+    }
+
+    public CustomerImportResult importCustomers(Iterator<CustomerRegistrationRequest> requests) {
+        List<CustomerImportResult.ChunkResult> chunkResults = new ArrayList<>();
+        List<CustomerRegistrationRequest> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
 
-        customerDAO.insertCustomer(
-                new Customer(
-                        customerRegistrationRequest.name(),
-                        customerRegistrationRequest.email(),
-                        customerRegistrationRequest.age(),
-                        customerRegistrationRequest.gender()
-                )
+        while (requests.hasNext()) {
+            chunk.add(requests.next());
+            if (chunk.size() == IMPORT_CHUNK_SIZE || !requests.hasNext()) {
+                chunkResults.add(importChunk(chunkResults.size(), chunk));
+                chunk.clear();
+            }
+        }
+        return CustomerImportResult.of(chunkResults);
+    }
+
+    private CustomerImportResult.ChunkResult importChunk(int index, List<CustomerRegistrationRequest> requests) {
+        // earlier chunks are already inserted, so only duplicates within this chunk need tracking here
+        Set<String> existingEmails = customerDAO.selectExistingEmails(
+                requests.stream()
+                        .map(CustomerRegistrationRequest::email)
+                        .filter(Objects::nonNull)
+                        .toList()
         );
+
+        Set<String> chunkEmails = new HashSet<>();
+        List<Customer> customers = new ArrayList<>(requests.size());
+        for (CustomerRegistrationRequest request : requests) {
+            if (isComplete(request)
+                    && !existingEmails.contains(request.email())
+                    && chunkEmails.add(request.email())) {
+                customers.add(new Customer(request.name(), request.email(), request.age(), request.gender()));
+            }
+        }
+
+        int accepted = customers.isEmpty() ? 0 : customerDAO.insertCustomers(customers);
+        return new CustomerImportResult.ChunkResult(index, accepted, requests.size() - accepted);
     }
 
-    public void deleteCustomerById(Integer customerId) {
+    private static boolean isComplete(CustomerRegistrationRequest request) {
+        return request != null
+                && request.name() != null
+                && request.email() != null
+                && request.age() != null
+                && request.gender() != null;
+    }
+
+    public void deleteCustomerById(Long customerId) {
         if (!customerDAO.existsPersonWithId(customerId))
             throw new ResourceNotFoundException("customer with id [%s] not found".formatted(customerId));
 
         customerDAO.deleteCustomerById(customerId);
     }
 
-    public void updateCustomer(Integer id, CustomerUpdateRequest updatedRequest) {
-        Customer customer = getCustomer(id);
-        boolean changes = false;
+    /**
+     * Empty while the customer has a pending update, which does not change the version until it is written.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> getCustomerVersion(Long id) {
+        if (writeBehind != null && writeBehind.isPending(id))
+            return Optional.empty();
+        return customerDAO.selectCustomerVersion(id);
+    }
+
+    public void updateCustomer(Long id, CustomerUpdateRequest updatedRequest) {
+        updateCustomer(id, updatedRequest, null);
+    }
 
-        if (updatedRequest.name() != null && !customer.getName().equals(updatedRequest.name())) {
-            customer.setName(updatedRequest.name());
-            changes = true;
-        }
-        if (updatedRequest.email() != null && !customer.getEmail().equals(updatedRequest.email())) {
-            if (customerDAO.existsPersonWithEmail(updatedRequest.email()))
-                throw new DuplicateResourceException("email already taken");
-            customer.setEmail(updatedRequest.email());
-            changes = true;
+    /**
+     * @param expectedVersion the version the client based its update on, {@code null} to update whatever is current
+     * @throws PreconditionFailedException if the customer is not at {@code expectedVersion}, or is updated
+     *                                     concurrently between being read and written here
+     */
+    public void updateCustomer(Long id, CustomerUpdateRequest updatedRequest, Long expectedVersion) {
+        boolean queued = writeBehind != null && expectedVersion == null && updatedRequest.email() == null;
+        if (writeBehind != null && !queued && writeBehind.isPending(id))
+            // written first, so that the pending update cannot overwrite this one later
+            writeBehind.flush();
+
+        Customer customer = loadCustomer(id);
+        if (writeBehind != null)
+            customer = writeBehind.withPendingUpdate(customer);
+        if (expectedVersion != null && !expectedVersion.equals(customer.getVersion()))
+            throw modified(id);
+        // only the changed fields are sent, so the DAO writes only their columns
+        Customer changes = updatedRequest.changesTo(customer)
+                .orElseThrow(() -> new RequestValidationException("no data changes found"));
+
+        if (queued) {
+            writeBehind.enqueue(id, new CustomerUpdateRequest(changes.getName(), null, changes.getAge()));
+            return;
         }
-        if (updatedRequest.age() != null && !customer.getAge().equals(updatedRequest.age())) {
-            customer.setAge(updatedRequest.age());
-            changes = true;
+        try {
+            customerDAO.updateCustomer(changes);
+        } catch (OptimisticLockingFailureException e) {
+            throw modified(id);
         }
-        if (!changes)
-            throw new RequestValidationException("no data changes found");
+    }
+
+    private List<Customer> withPendingUpdates(List<Customer> customers) {
+        if (writeBehind == null)
+            return customers;
+        return customers.stream().map(writeBehind::withPendingUpdate).toList();
+    }
 
-        customerDAO.updateCustomer(customer);
+    private static PreconditionFailedException modified(Long id) {
+        return new PreconditionFailedException("customer with id [%s] has been modified".formatted(id));
     }
 }
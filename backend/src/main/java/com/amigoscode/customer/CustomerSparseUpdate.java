@@ -0,0 +1,67 @@
+package com.amigoscode.customer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single {@code UPDATE} of the non-null fields of a customer, checked against its version when it has
+ * one and recorded in the outbox in the same statement. Shared by the JDBC and JPA stores, so both write
+ * only the changed columns in one round trip.
+ *
+ * @param sql  with positional parameters
+ * @param args the changed values, then the id, then the expected version if any
+ */
+record CustomerSparseUpdate(String sql, List<Object> args) {
+
+    private static final String[] UPDATABLE_COLUMNS = {"name", "email", "age", "gender"};
+    private static final int VERSION_CHECKED = 1 << UPDATABLE_COLUMNS.length;
+    // one statement per combination of changed columns, keyed by a bitmask over UPDATABLE_COLUMNS
+    // with one more bit for whether the update is checked against an expected version
+    private static final Map<Integer, String> STATEMENTS = new ConcurrentHashMap<>();
+
+    /**
+     * @return empty if {@code update} sets no field
+     */
+    static Optional<CustomerSparseUpdate> of(Customer update) {
+        Object[] values = {
+                update.getName(),
+                update.getEmail(),
+                update.getAge(),
+                update.getGender() != null ? update.getGender().name() : null
+        };
+
+        int changedColumns = 0;
+        List<Object> args = new ArrayList<>(values.length + 2);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                changedColumns |= 1 << i;
+                args.add(values[i]);
+            }
+        }
+        if (changedColumns == 0)
+            return Optional.empty();
+        args.add(update.getId());
+        if (update.getVersion() != null) {
+            changedColumns |= VERSION_CHECKED;
+            args.add(update.getVersion());
+        }
+        return Optional.of(new CustomerSparseUpdate(
+                STATEMENTS.computeIfAbsent(changedColumns, CustomerSparseUpdate::buildStatement), args));
+    }
+
+    private static String buildStatement(int changedColumns) {
+        boolean versionChecked = (changedColumns & VERSION_CHECKED) != 0;
+        StringJoiner assignments = new StringJoiner(", ", "UPDATE customer SET ",
+                versionChecked ? " WHERE id = ? AND version = ?" : " WHERE id = ?");
+        for (int i = 0; i < UPDATABLE_COLUMNS.length; i++) {
+            if ((changedColumns & 1 << i) != 0)
+                assignments.add(UPDATABLE_COLUMNS[i] + " = ?");
+        }
+        assignments.add("version = version + 1");
+        return CustomerOutbox.recording(assignments.toString(), CustomerChange.Type.UPDATED);
+    }
+}
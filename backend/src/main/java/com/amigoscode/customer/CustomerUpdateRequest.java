@@ -1,4 +1,34 @@
 package com.amigoscode.customer;
 
+import java.util.Optional;
+
 public record CustomerUpdateRequest(String name, String email, Integer age) {
+
+    /**
+     * The fields of this request that differ from {@code customer}, as a sparse customer holding only those
+     * fields plus the customer's id and version, so that the DAOs write the changed columns alone.
+     *
+     * @return empty if the request changes nothing
+     */
+    public Optional<Customer> changesTo(Customer customer) {
+        Customer changes = new Customer();
+        boolean changed = false;
+        if (name != null && !name.equals(customer.getName())) {
+            changes.setName(name);
+            changed = true;
+        }
+        if (email != null && !email.equals(customer.getEmail())) {
+            changes.setEmail(email);
+            changed = true;
+        }
+        if (age != null && !age.equals(customer.getAge())) {
+            changes.setAge(age);
+            changed = true;
+        }
+        if (!changed)
+            return Optional.empty();
+        changes.setId(customer.getId());
+        changes.setVersion(customer.getVersion());
+        return Optional.of(changes);
+    }
 }
@@ -0,0 +1,352 @@
+package com.amigoscode.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind queue for customer updates, enabled with {@code customer.write-behind.enabled}. An update is
+ * acknowledged once it is appended to a local journal and forced to disk. Forces are group committed: one
+ * writer forces the journal for every update appended so far while the others wait for it, so concurrent
+ * writers share an fsync instead of queueing for one each. Pending updates are coalesced per customer and
+ * written every {@code customer.write-behind.flush-interval}, up to {@code customer.write-behind.batch-size}
+ * customers per transaction.
+ * <p>
+ * Every flush seals the current journal segment and deletes the sealed segments once their updates are
+ * written, so after a crash the unwritten updates, and at most those of the interrupted flush, are replayed.
+ * Replaying an update that was already written sets the same values again. Updates stay pending until their
+ * segments are deleted, so a synchronous update that finds none pending cannot be overwritten by a replay.
+ * <p>
+ * Only name and age changes are queued: email changes need the database's unique check and conditional
+ * updates need the current version, so {@link CustomerService} writes those synchronously, after flushing
+ * any pending update of the customer. Pending updates are not seen by other instances until flushed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "customer.write-behind.enabled", havingValue = "true")
+public class CustomerWriteBehind {
+
+    private static final String SEGMENT_PREFIX = "customer-updates-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+
+    record JournalEntry(Long id, String name, Integer age) {
+    }
+
+    private final CustomerDAO customerDAO;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final Duration flushInterval;
+    private final int batchSize;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentMap<Long, CustomerUpdateRequest> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // guards the journal, the segment number, the sealed segments and the append count
+    private final Object journalLock = new Object();
+    private final List<Path> sealedSegments = new ArrayList<>();
+    private FileChannel journal;
+    private Path journalSegment;
+    private long segment;
+    private long appended;
+
+    // held by the writer forcing the journal, guards how many appends are known to be on disk
+    private final Object forceLock = new Object();
+    private long forced;
+
+    // one flush at a time, whether scheduled or requested by a synchronous update
+    private final Object flushLock = new Object();
+
+    public CustomerWriteBehind(
+            @Qualifier("jpa") CustomerDAO customerDAO,
+            PlatformTransactionManager transactionManager,
+            @Value("${customer.write-behind.directory}") Path directory,
+            @Value("${customer.write-behind.flush-interval}") Duration flushInterval,
+            @Value("${customer.write-behind.batch-size}") int batchSize) {
+        this.customerDAO = customerDAO;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.directory = directory;
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        synchronized (journalLock) {
+            for (Path existing : existingSegments()) {
+                replay(existing);
+                sealedSegments.add(existing);
+                segment = Math.max(segment, segmentNumber(existing));
+            }
+            openNextSegment();
+        }
+        if (!pending.isEmpty())
+            log.info("Recovered pending updates of {} customers from {}", pending.size(), directory);
+
+        flushExecutor.scheduleWithFixedDelay(
+                this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException, InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(flushInterval.toMillis() + 10_000, TimeUnit.MILLISECONDS);
+        flushQuietly();
+        synchronized (journalLock) {
+            // closed already if sealing it failed
+            if (journal.isOpen()) {
+                journal.force(false);
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * Returns once the update is on disk. Fields left {@code null} keep their pending or stored value.
+     *
+     * @throws UncheckedIOException if the update could not be journaled, in which case it is not queued, or
+     *                              could not be forced to disk, in which case it may still be written
+     */
+    public void enqueue(Long id, CustomerUpdateRequest update) {
+        ByteBuffer line;
+        try {
+            line = ByteBuffer.wrap((objectMapper.writeValueAsString(new JournalEntry(id, update.name(), update.age()))
+                    + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long position;
+        synchronized (journalLock) {
+            try {
+                while (line.hasRemaining())
+                    journal.write(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not journal update of customer [%s]".formatted(id), e);
+            }
+            // merged in journal order, so that memory agrees with what a replay would produce
+            pending.merge(id, new CustomerUpdateRequest(update.name(), null, update.age()), CustomerWriteBehind::merge);
+            position = ++appended;
+        }
+        awaitForced(position, id);
+    }
+
+    private void awaitForced(long position, Long id) {
+        synchronized (forceLock) {
+            // a writer that forced while this one waited for the lock may have covered it already
+            if (forced >= position)
+                return;
+            FileChannel channel;
+            long upTo;
+            synchronized (journalLock) {
+                channel = journal;
+                upTo = appended;
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // sealed in the meantime, and sealing forces the segment before closing it
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not force update of customer [%s] to disk".formatted(id), e);
+            }
+            forced = upTo;
+        }
+    }
+
+    public boolean isPending(Long id) {
+        return pending.containsKey(id);
+    }
+
+    /**
+     * Returns the customer with its pending update applied, as a copy so that cached or managed instances
+     * are left alone. The copy has no version: it matches no stored version until the update is written,
+     * so it must not be tagged with, or conditionally updated against, the stored one.
+     */
+    public Customer withPendingUpdate(Customer customer) {
+        CustomerUpdateRequest update = pending.get(customer.getId());
+        if (update == null)
+            return customer;
+        Customer updated = new Customer(customer.getId(), customer.getName(), customer.getEmail(),
+                customer.getAge(), customer.getGender());
+        apply(updated, update);
+        return updated;
+    }
+
+    /**
+     * Writes every pending update. Updates that fail for good, such as those of customers deleted in the
+     * meantime, are dropped with a warning; any other failure leaves them pending for the next flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, CustomerUpdateRequest> batch;
+            List<Path> segments;
+            synchronized (journalLock) {
+                if (pending.isEmpty() && sealedSegments.isEmpty())
+                    return;
+                sealCurrentSegment();
+                batch = Map.copyOf(pending);
+                segments = List.copyOf(sealedSegments);
+            }
+
+            List<Long> ids = new ArrayList<>(batch.keySet());
+            for (int from = 0; from < ids.size(); from += batchSize)
+                write(ids.subList(from, Math.min(from + batchSize, ids.size())), batch);
+
+            boolean deleted = true;
+            synchronized (journalLock) {
+                for (Path sealed : segments) {
+                    if (deleteSegment(sealed))
+                        sealedSegments.remove(sealed);
+                    else
+                        deleted = false;
+                }
+            }
+            // only now, with nothing left on disk to replay over them, may synchronous updates skip
+            // the flush; updates merged in while writing stay pending, and are in the new segment
+            if (deleted)
+                batch.forEach(pending::remove);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Could not flush pending updates of {} customers, retrying in {}", pending.size(), flushInterval, e);
+        }
+    }
+
+    private void write(List<Long> ids, Map<Long, CustomerUpdateRequest> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> ids.forEach(id -> write(id, batch.get(id))));
+        } catch (RuntimeException batchFailure) {
+            // one failing update must not hold back the others, so each is retried on its own
+            for (Long id : ids) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(id, batch.get(id)));
+                } catch (DataIntegrityViolationException e) {
+                    log.warn("Dropping pending update of customer [{}]", id, e);
+                }
+            }
+        }
+    }
+
+    private void write(Long id, CustomerUpdateRequest update) {
+        Optional<Customer> stored = customerDAO.selectCustomerById(id);
+        if (stored.isEmpty()) {
+            log.debug("Customer [{}] was deleted before its pending update was written", id);
+            return;
+        }
+        update.changesTo(stored.get()).ifPresent(customerDAO::updateCustomer);
+    }
+
+    private static void apply(Customer customer, CustomerUpdateRequest update) {
+        if (update.name() != null)
+            customer.setName(update.name());
+        if (update.age() != null)
+            customer.setAge(update.age());
+    }
+
+    private static CustomerUpdateRequest merge(CustomerUpdateRequest older, CustomerUpdateRequest newer) {
+        return new CustomerUpdateRequest(
+                newer.name() != null ? newer.name() : older.name(),
+                null,
+                newer.age() != null ? newer.age() : older.age()
+        );
+    }
+
+    private List<Path> existingSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted(Comparator.comparingLong(CustomerWriteBehind::segmentNumber))
+                    .toList();
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void replay(Path segment) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JournalEntry entry;
+                try {
+                    entry = objectMapper.readValue(line, JournalEntry.class);
+                } catch (IOException e) {
+                    // a line torn by a crash was never acknowledged
+                    log.warn("Skipping unreadable line in {}", segment);
+                    continue;
+                }
+                pending.merge(entry.id(), new CustomerUpdateRequest(entry.name(), null, entry.age()),
+                        CustomerWriteBehind::merge);
+            }
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        segment++;
+        journalSegment = directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+        journal = FileChannel.open(journalSegment,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void sealCurrentSegment() {
+        try {
+            // writers still waiting for their force are covered by this one
+            journal.force(false);
+            journal.close();
+            sealedSegments.add(journalSegment);
+            openNextSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not start a new journal segment in " + directory, e);
+        }
+    }
+
+    private static boolean deleteSegment(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not delete written journal segment {}, its updates stay pending", segment, e);
+            return false;
+        }
+    }
+}
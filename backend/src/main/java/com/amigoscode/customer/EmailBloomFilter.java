@@ -0,0 +1,78 @@
+package com.amigoscode.customer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over email addresses. {@link #mightContain(String)} never returns
+ * {@code false} for an email that was {@link #put(String) put}; it returns {@code true} for an unknown
+ * email with roughly the configured false positive probability. 10M emails at 1% take about 12 MB.
+ */
+final class EmailBloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashFunctions;
+
+    EmailBloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions < 1)
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1)
+            throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1");
+
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (LN2 * LN2));
+        this.words = new AtomicLongArray(Math.toIntExact((optimalBits + Long.SIZE - 1) / Long.SIZE));
+        this.bitCount = (long) words.length() * Long.SIZE;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) optimalBits / expectedInsertions * LN2));
+    }
+
+    void put(String email) {
+        long hash1 = hash(email);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(word)) & mask) == 0
+                    && !words.compareAndSet(word, current, current | mask)) {
+                // lost a race with another writer on the same word, retry
+            }
+        }
+    }
+
+    boolean mightContain(String email) {
+        long hash1 = hash(email);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            if ((words.get((int) (bit >>> 6)) & 1L << bit) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    long sizeInBytes() {
+        return bitCount / Byte.SIZE;
+    }
+
+    // 64-bit FNV-1a over the UTF-16 code units, finalized with the MurmurHash3 mixer
+    private static long hash(String email) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < email.length(); i++) {
+            hash ^= email.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
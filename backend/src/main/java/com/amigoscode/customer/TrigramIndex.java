@@ -0,0 +1,78 @@
+package com.amigoscode.customer;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Thread-safe inverted index from trigrams to customer ids, the in-memory counterpart of the pg_trgm
+ * GIN indexes. Trigrams are extracted the way pg_trgm does it: the text is lower-cased and split into
+ * alphanumeric words, each padded with two leading spaces and one trailing space.
+ */
+final class TrigramIndex {
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ConcurrentMap<String, Set<Long>> idsByTrigram = new ConcurrentHashMap<>();
+
+    void add(Long id, String... texts) {
+        for (String text : texts)
+            for (String trigram : trigrams(text))
+                idsByTrigram.compute(trigram, (key, ids) -> {
+                    if (ids == null)
+                        ids = ConcurrentHashMap.newKeySet();
+                    ids.add(id);
+                    return ids;
+                });
+    }
+
+    void remove(Long id, String... texts) {
+        for (String text : texts)
+            for (String trigram : trigrams(text))
+                idsByTrigram.computeIfPresent(trigram, (key, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+    }
+
+    /**
+     * Ids sharing at least one trigram with the query. Candidates may be stale, callers re-check them
+     * against the stored customer.
+     */
+    Set<Long> candidates(Set<String> queryTrigrams) {
+        Set<Long> candidates = new HashSet<>();
+        for (String trigram : queryTrigrams) {
+            Set<Long> ids = idsByTrigram.get(trigram);
+            if (ids != null)
+                candidates.addAll(ids);
+        }
+        return candidates;
+    }
+
+    static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (String word : NON_ALPHANUMERIC.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty())
+                continue;
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++)
+                trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Share of the query's trigrams that also occur in {@code text}, an approximation of pg_trgm's
+     * {@code word_similarity}.
+     */
+    static double wordSimilarity(Set<String> queryTrigrams, String text) {
+        if (queryTrigrams.isEmpty())
+            return 0;
+        Set<String> textTrigrams = trigrams(text);
+        long shared = queryTrigrams.stream().filter(textTrigrams::contains).count();
+        return (double) shared / queryTrigrams.size();
+    }
+}
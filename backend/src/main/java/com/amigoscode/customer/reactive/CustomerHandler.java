@@ -0,0 +1,200 @@
+package com.amigoscode.customer.reactive;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerETags;
+import com.amigoscode.customer.CustomerQuery;
+import com.amigoscode.customer.CustomerRegistrationRequest;
+import com.amigoscode.customer.CustomerUpdateRequest;
+import com.amigoscode.customer.Gender;
+import com.amigoscode.exception.RequestValidationException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+
+@ConditionalOnWebApplication(type = REACTIVE)
+@Component
+public class CustomerHandler {
+
+    private static final ParameterizedTypeReference<List<Long>> IDS = new ParameterizedTypeReference<>() {
+    };
+
+    private final ReactiveCustomerService customerService;
+    private final ObjectMapper objectMapper;
+    private final int defaultPageSize;
+    private final int defaultSearchLimit;
+
+    public CustomerHandler(
+            ReactiveCustomerService customerService,
+            ObjectMapper objectMapper,
+            @Value("${customer.page.default-size}") int defaultPageSize,
+            @Value("${customer.search.default-limit}") int defaultSearchLimit) {
+        this.customerService = customerService;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
+        this.defaultSearchLimit = defaultSearchLimit;
+    }
+
+    public Mono<ServerResponse> getCustomers(ServerRequest request) {
+        // NDJSON writes each customer as soon as its row arrives, plain JSON is written as one array
+        MediaType mediaType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON
+                : MediaType.APPLICATION_JSON;
+
+        return Mono.defer(() -> ServerResponse.ok()
+                .contentType(mediaType)
+                .body(customerService.getCustomers(customerQuery(request)), Customer.class));
+    }
+
+    public Mono<ServerResponse> getCustomersByIds(ServerRequest request) {
+        return Mono.defer(() -> customerService.getCustomersByIds(ids(request)))
+                .flatMap(result -> ServerResponse.ok().bodyValue(result));
+    }
+
+    /**
+     * Same as {@code GET ?ids=}, for id lists too long for a query string.
+     */
+    public Mono<ServerResponse> getCustomersByIdsInBody(ServerRequest request) {
+        return request.bodyToMono(IDS)
+                .defaultIfEmpty(List.of())
+                .flatMap(customerService::getCustomersByIds)
+                .flatMap(result -> ServerResponse.ok().bodyValue(result));
+    }
+
+    public Mono<ServerResponse> searchCustomers(ServerRequest request) {
+        return Flux.defer(() -> customerService.searchCustomers(
+                        request.queryParam("q").orElseThrow(() -> new RequestValidationException("q is required")),
+                        intParam(request, "limit").orElse(defaultSearchLimit)))
+                .collectList()
+                .flatMap(customers -> hashTagged(request, customers));
+    }
+
+    public Mono<ServerResponse> getCustomerPage(ServerRequest request) {
+        return Mono.defer(() -> customerService.getCustomerPage(
+                        longParam(request, "after").orElse(null),
+                        intParam(request, "size").orElse(defaultPageSize)))
+                .flatMap(page -> hashTagged(request, page));
+    }
+
+    public Mono<ServerResponse> streamCustomers(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(customerService.getAllCustomers(), Customer.class);
+    }
+
+    public Mono<ServerResponse> getCustomer(ServerRequest request) {
+        return customerService.getCustomer(customerId(request))
+                .flatMap(customer -> {
+                    String eTag = CustomerETags.eTag(customer.getVersion());
+                    return request.checkNotModified(eTag)
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(eTag).bodyValue(customer)));
+                });
+    }
+
+    public Mono<ServerResponse> registerCustomer(ServerRequest request) {
+        return request.bodyToMono(CustomerRegistrationRequest.class)
+                .flatMap(customerService::addCustomer)
+                .then(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> deleteCustomer(ServerRequest request) {
+        return customerService.deleteCustomerById(customerId(request))
+                .then(ServerResponse.ok().build());
+    }
+
+    /**
+     * Honours {@code If-Match} the way {@link com.amigoscode.customer.CustomerController} does.
+     */
+    public Mono<ServerResponse> updateCustomer(ServerRequest request) {
+        return Mono.defer(() -> {
+            Long expectedVersion = CustomerETags.expectedVersion(request.headers().firstHeader(HttpHeaders.IF_MATCH));
+            return request.bodyToMono(CustomerUpdateRequest.class)
+                    .flatMap(update -> customerService.updateCustomer(customerId(request), update, expectedVersion));
+        }).then(ServerResponse.ok().build());
+    }
+
+    /**
+     * Tags a page or search result with a hash of its JSON, as the servlet stack's
+     * {@link org.springframework.web.filter.ShallowEtagHeaderFilter} does, so an unchanged poll is
+     * answered with a 304.
+     */
+    private Mono<ServerResponse> hashTagged(ServerRequest request, Object body) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        String eTag = "0" + DigestUtils.md5DigestAsHex(json);
+        return request.checkNotModified(eTag)
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+                        .eTag(eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(json)));
+    }
+
+    private static CustomerQuery customerQuery(ServerRequest request) {
+        return new CustomerQuery(
+                request.queryParam("name").orElse(null),
+                request.queryParam("email").orElse(null),
+                intParam(request, "minAge").orElse(null),
+                intParam(request, "maxAge").orElse(null),
+                enumParam(request, "gender", Gender.class),
+                enumParam(request, "sort", CustomerQuery.SortField.class),
+                enumParam(request, "direction", CustomerQuery.Direction.class)
+        );
+    }
+
+    // ids=1,2&ids=3 is read as 1, 2, 3, like a List<Long> request parameter of the servlet stack
+    private static List<Long> ids(ServerRequest request) {
+        List<Long> ids = new ArrayList<>();
+        for (String value : request.queryParams().getOrDefault("ids", List.of())) {
+            for (String id : StringUtils.commaDelimitedListToStringArray(value))
+                ids.add(parse("ids", id, Long::valueOf));
+        }
+        return ids;
+    }
+
+    private static Optional<Integer> intParam(ServerRequest request, String name) {
+        return request.queryParam(name).map(value -> parse(name, value, Integer::valueOf));
+    }
+
+    private static Optional<Long> longParam(ServerRequest request, String name) {
+        return request.queryParam(name).map(value -> parse(name, value, Long::valueOf));
+    }
+
+    private static <E extends Enum<E>> E enumParam(ServerRequest request, String name, Class<E> type) {
+        return request.queryParam(name)
+                .map(value -> parse(name, value, constant -> Enum.valueOf(type, constant)))
+                .orElse(null);
+    }
+
+    private static <T> T parse(String name, String value, Function<String, T> parser) {
+        try {
+            return parser.apply(value.strip());
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("invalid %s [%s]".formatted(name, value));
+        }
+    }
+
+    private static Long customerId(ServerRequest request) {
+        return Long.valueOf(request.pathVariable("customerId"));
+    }
+}
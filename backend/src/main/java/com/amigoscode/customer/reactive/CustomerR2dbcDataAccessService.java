@@ -0,0 +1,214 @@
+package com.amigoscode.customer.reactive;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChange;
+import com.amigoscode.customer.CustomerOutbox;
+import com.amigoscode.customer.CustomerQuery;
+import com.amigoscode.customer.Gender;
+import com.amigoscode.exception.DuplicateResourceException;
+import io.r2dbc.spi.Readable;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = REACTIVE)
+@Repository
+public class CustomerR2dbcDataAccessService implements ReactiveCustomerDAO {
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<Customer> selectAllCustomers() {
+        return databaseClient.sql("SELECT id,name,email,age,gender,version FROM customer ORDER BY id")
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .all();
+    }
+
+    @Override
+    public Flux<Customer> selectCustomers(CustomerQuery query) {
+        StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        Map<String, Object> args = new LinkedHashMap<>();
+        if (query.name() != null) {
+            where.add("lower(name) LIKE :name");
+            args.put("name", query.namePattern());
+        }
+        if (query.email() != null) {
+            // resolved through customer_email, so only the customer's partition is scanned
+            where.add("id = (SELECT customer_id FROM customer_email WHERE email = :email)");
+            args.put("email", query.email());
+        }
+        if (query.minAge() != null) {
+            where.add("age >= :minAge");
+            args.put("minAge", query.minAge());
+        }
+        if (query.maxAge() != null) {
+            where.add("age <= :maxAge");
+            args.put("maxAge", query.maxAge());
+        }
+        if (query.gender() != null) {
+            where.add("gender = :gender");
+            args.put("gender", query.gender().name());
+        }
+
+        var sql = "SELECT id,name,email,age,gender,version FROM customer" + where
+                + " ORDER BY " + query.sort().column() + " " + query.direction()
+                + (query.sort() == CustomerQuery.SortField.ID ? "" : ", id");
+
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql);
+        for (Map.Entry<String, Object> arg : args.entrySet())
+            statement = statement.bind(arg.getKey(), arg.getValue());
+        return statement.map(CustomerR2dbcDataAccessService::toCustomer).all();
+    }
+
+    @Override
+    public Flux<Customer> selectCustomerPage(Long afterId, int limit) {
+        var sql = """
+                SELECT id,name,email,age,gender,version
+                FROM customer
+                WHERE id > :afterId
+                ORDER BY id
+                LIMIT :limit
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .all();
+    }
+
+    @Override
+    public Flux<Customer> searchCustomers(String query, int limit) {
+        var sql = """
+                SELECT id,name,email,age,gender,version
+                FROM customer
+                WHERE name ILIKE :pattern OR email ILIKE :pattern OR :query <% name OR :query <% email
+                ORDER BY greatest(word_similarity(:query, name), word_similarity(:query, email)) DESC, id
+                LIMIT :limit
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("pattern", "%" + CustomerQuery.escapeLike(query) + "%")
+                .bind("query", query)
+                .bind("limit", limit)
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .all();
+    }
+
+    @Override
+    public Mono<Customer> selectCustomerById(Long id) {
+        var sql = """
+                SELECT id,name,email,age,gender,version
+                FROM customer
+                WHERE id = :id
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .one();
+    }
+
+    @Override
+    public Flux<Customer> selectCustomersByIds(Collection<Long> ids) {
+        var sql = """
+                SELECT id,name,email,age,gender,version
+                FROM customer
+                WHERE id = ANY(:ids)
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("ids", ids.toArray(Long[]::new))
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .all();
+    }
+
+    @Override
+    public Mono<Long> insertCustomer(Customer customer) {
+        var sql = CustomerOutbox.recording("""
+                INSERT INTO customer (name, email, age, gender)
+                VALUES (:name, :email, :age, :gender)
+                """, CustomerChange.Type.INSERTED) + " RETURNING customer_id";
+
+        return databaseClient.sql(sql)
+                .bind("name", customer.getName())
+                .bind("email", customer.getEmail())
+                .bind("age", customer.getAge())
+                .bind("gender", customer.getGender().name())
+                .map(row -> row.get("customer_id", Long.class))
+                .one()
+                .onErrorMap(DuplicateKeyException.class, e -> new DuplicateResourceException("email already taken"));
+    }
+
+    @Override
+    public Mono<Boolean> deleteCustomerById(Long id) {
+        var sql = CustomerOutbox.recording("DELETE FROM customer WHERE id = :id", CustomerChange.Type.DELETED);
+
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    @Override
+    public Mono<Void> updateCustomer(Customer update) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        if (update.getName() != null)
+            changes.put("name", update.getName());
+        if (update.getEmail() != null)
+            changes.put("email", update.getEmail());
+        if (update.getAge() != null)
+            changes.put("age", update.getAge());
+        if (update.getGender() != null)
+            changes.put("gender", update.getGender().name());
+        if (changes.isEmpty())
+            return Mono.empty();
+
+        boolean versionChecked = update.getVersion() != null;
+        StringJoiner assignments = new StringJoiner(", ", "UPDATE customer SET ",
+                versionChecked ? " WHERE id = :id AND version = :version" : " WHERE id = :id");
+        changes.keySet().forEach(column -> assignments.add(column + " = :" + column));
+        assignments.add("version = version + 1");
+
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(
+                        CustomerOutbox.recording(assignments.toString(), CustomerChange.Type.UPDATED))
+                .bind("id", update.getId());
+        if (versionChecked)
+            statement = statement.bind("version", update.getVersion());
+        for (Map.Entry<String, Object> change : changes.entrySet())
+            statement = statement.bind(change.getKey(), change.getValue());
+
+        return statement.fetch()
+                .rowsUpdated()
+                .onErrorMap(DuplicateKeyException.class, e -> new DuplicateResourceException("email already taken"))
+                .flatMap(rows -> rows == 0 && versionChecked
+                        ? Mono.error(new OptimisticLockingFailureException(
+                        "customer with id [%s] is no longer at version %s".formatted(update.getId(), update.getVersion())))
+                        : Mono.empty());
+    }
+
+    private static Customer toCustomer(Readable row) {
+        return new Customer(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class),
+                Gender.valueOf(row.get("gender", String.class)),
+                row.get("version", Long.class)
+        );
+    }
+}
@@ -0,0 +1,38 @@
+package com.amigoscode.customer.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+
+/**
+ * Serves the {@code api/v1/customers} contract of {@link com.amigoscode.customer.CustomerController}
+ * when the application runs on WebFlux (the "reactive" profile). The change feed and the batch import
+ * are served by the servlet stack only.
+ */
+@ConditionalOnWebApplication(type = REACTIVE)
+@Configuration
+public class CustomerRouter {
+
+    @Bean
+    RouterFunction<ServerResponse> customerRoutes(CustomerHandler customerHandler) {
+        return RouterFunctions.route()
+                .path("/api/v1/customers", builder -> builder
+                        .GET("", queryParam("ids", ids -> true), customerHandler::getCustomersByIds)
+                        .GET("", customerHandler::getCustomers)
+                        .POST("/batch-get", customerHandler::getCustomersByIdsInBody)
+                        .GET("/search", customerHandler::searchCustomers)
+                        .GET("/page", customerHandler::getCustomerPage)
+                        .GET("/stream", customerHandler::streamCustomers)
+                        .GET("/{customerId}", customerHandler::getCustomer)
+                        .POST("", customerHandler::registerCustomer)
+                        .DELETE("/{customerId}", customerHandler::deleteCustomer)
+                        .PUT("/{customerId}", customerHandler::updateCustomer))
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.amigoscode.customer.reactive;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Non-blocking counterpart of {@link com.amigoscode.customer.CustomerDAO}.
+ */
+public interface ReactiveCustomerDAO {
+    Flux<Customer> selectAllCustomers();
+
+    /**
+     * @return the customers matching {@code query}, in its order
+     */
+    Flux<Customer> selectCustomers(CustomerQuery query);
+
+    /**
+     * @return up to {@code limit} customers with an id greater than {@code afterId}, ordered by id
+     */
+    Flux<Customer> selectCustomerPage(Long afterId, int limit);
+
+    /**
+     * @return up to {@code limit} customers whose name or email contains or resembles {@code query},
+     * best matches first
+     */
+    Flux<Customer> searchCustomers(String query, int limit);
+
+    Mono<Customer> selectCustomerById(Long id);
+
+    /**
+     * @return the customers with one of {@code ids}, in no particular order
+     */
+    Flux<Customer> selectCustomersByIds(Collection<Long> ids);
+
+    /**
+     * @return the id of the new customer, or a {@link com.amigoscode.exception.DuplicateResourceException}
+     * error if the email is already taken
+     */
+    Mono<Long> insertCustomer(Customer customer);
+
+    /**
+     * @return whether a customer was deleted
+     */
+    Mono<Boolean> deleteCustomerById(Long id);
+
+    /**
+     * Applies the non-null fields of {@code update} and increments the version, like
+     * {@link com.amigoscode.customer.CustomerDAO#updateCustomer(Customer)}.
+     *
+     * @return a {@link com.amigoscode.exception.DuplicateResourceException} error if the email is taken, or an
+     * {@link org.springframework.dao.OptimisticLockingFailureException} error if {@code update} carries a
+     * version the customer has moved past
+     */
+    Mono<Void> updateCustomer(Customer update);
+}
@@ -0,0 +1,147 @@
+package com.amigoscode.customer.reactive;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerLookupResult;
+import com.amigoscode.customer.CustomerPage;
+import com.amigoscode.customer.CustomerQuery;
+import com.amigoscode.customer.CustomerRegistrationRequest;
+import com.amigoscode.customer.CustomerUpdateRequest;
+import com.amigoscode.exception.PreconditionFailedException;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ResourceNotFoundException;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.amigoscode.customer.CustomerService.MAX_LOOKUP_SIZE;
+import static com.amigoscode.customer.CustomerService.MAX_PAGE_SIZE;
+import static com.amigoscode.customer.CustomerService.MAX_SEARCH_LIMIT;
+import static com.amigoscode.customer.CustomerService.MIN_SEARCH_LENGTH;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+
+/**
+ * Non-blocking counterpart of {@link com.amigoscode.customer.CustomerService} with the same rules and errors.
+ */
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = REACTIVE)
+@Service
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerDAO customerDAO;
+
+    public Flux<Customer> getAllCustomers() {
+        return customerDAO.selectAllCustomers();
+    }
+
+    public Flux<Customer> getCustomers(CustomerQuery query) {
+        if (query.minAge() != null && query.maxAge() != null && query.minAge() > query.maxAge())
+            return Flux.error(new RequestValidationException("minAge must not be greater than maxAge"));
+
+        return customerDAO.selectCustomers(query);
+    }
+
+    public Flux<Customer> searchCustomers(String query, int limit) {
+        String q = query == null ? "" : query.strip();
+        if (q.length() < MIN_SEARCH_LENGTH)
+            return Flux.error(new RequestValidationException(
+                    "search query must be at least %s characters".formatted(MIN_SEARCH_LENGTH)));
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT)
+            return Flux.error(new RequestValidationException(
+                    "search limit must be between 1 and %s".formatted(MAX_SEARCH_LIMIT)));
+
+        return customerDAO.searchCustomers(q, limit);
+    }
+
+    public Mono<CustomerPage> getCustomerPage(Long afterId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            return Mono.error(new RequestValidationException("page size must be between 1 and %s".formatted(MAX_PAGE_SIZE)));
+
+        return customerDAO.selectCustomerPage(afterId == null ? 0 : afterId, size)
+                .collectList()
+                .map(customers -> new CustomerPage(
+                        customers,
+                        customers.size() == size ? customers.get(customers.size() - 1).getId() : null));
+    }
+
+    public Mono<Customer> getCustomer(Long id) {
+        return customerDAO.selectCustomerById(id)
+                .switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    /**
+     * Looks the customers up in a single DAO call. Repeated ids are looked up and returned once.
+     */
+    public Mono<CustomerLookupResult> getCustomersByIds(List<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids == null ? List.of() : ids);
+        requested.remove(null);
+        if (requested.isEmpty() || requested.size() > MAX_LOOKUP_SIZE)
+            return Mono.error(new RequestValidationException(
+                    "between 1 and %s ids must be requested".formatted(MAX_LOOKUP_SIZE)));
+
+        return customerDAO.selectCustomersByIds(requested)
+                .collectMap(Customer::getId)
+                .map(found -> {
+                    List<Customer> customers = new ArrayList<>(found.size());
+                    List<Long> missingIds = new ArrayList<>(requested.size() - found.size());
+                    for (Long id : requested) {
+                        Customer customer = found.get(id);
+                        if (customer == null)
+                            missingIds.add(id);
+                        else
+                            customers.add(customer);
+                    }
+                    return new CustomerLookupResult(customers, missingIds);
+                });
+    }
+
+    public Mono<Void> addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+        return customerDAO.insertCustomer(
+                new Customer(
+                        customerRegistrationRequest.name(),
+                        customerRegistrationRequest.email(),
+                        customerRegistrationRequest.age(),
+                        customerRegistrationRequest.gender()
+                )
+        ).then();
+    }
+
+    public Mono<Void> deleteCustomerById(Long customerId) {
+        return customerDAO.deleteCustomerById(customerId)
+                .flatMap(deleted -> deleted ? Mono.<Void>empty() : Mono.error(notFound(customerId)));
+    }
+
+    public Mono<Void> updateCustomer(Long id, CustomerUpdateRequest updatedRequest) {
+        return updateCustomer(id, updatedRequest, null);
+    }
+
+    /**
+     * @param expectedVersion the version the client based its update on, {@code null} to update whatever is current
+     */
+    public Mono<Void> updateCustomer(Long id, CustomerUpdateRequest updatedRequest, Long expectedVersion) {
+        return getCustomer(id).flatMap(customer -> {
+            if (expectedVersion != null && !expectedVersion.equals(customer.getVersion()))
+                return Mono.error(modified(id));
+            // only the changed fields are sent, so the DAO writes only their columns
+            return updatedRequest.changesTo(customer)
+                    .map(changes -> customerDAO.updateCustomer(changes)
+                            .onErrorMap(OptimisticLockingFailureException.class, e -> modified(id)))
+                    .orElseGet(() -> Mono.error(new RequestValidationException("no data changes found")));
+        });
+    }
+
+    private static PreconditionFailedException modified(Long id) {
+        return new PreconditionFailedException("customer with id [%s] has been modified".formatted(id));
+    }
+
+    private static ResourceNotFoundException notFound(Long id) {
+        return new ResourceNotFoundException("customer with id [%s] not found".formatted(id));
+    }
+}
@@ -0,0 +1,17 @@
+-- UPDATE OF email fires whenever email is in the SET list, even with an unchanged value, which deleted
+-- and re-inserted the customer_email row. OLD cannot be referenced by an INSERT trigger's WHEN, so
+-- updates get a trigger of their own that only fires when the email actually differs.
+DROP TRIGGER customer_email_sync ON customer;
+
+CREATE TRIGGER customer_email_sync
+    AFTER INSERT OR DELETE
+    ON customer
+    FOR EACH ROW
+EXECUTE FUNCTION customer_email_sync();
+
+CREATE TRIGGER customer_email_sync_update
+    AFTER UPDATE OF email
+    ON customer
+    FOR EACH ROW
+    WHEN (OLD.email IS DISTINCT FROM NEW.email)
+EXECUTE FUNCTION customer_email_sync();
@@ -0,0 +1,8 @@
+-- gender with an optional age range
+CREATE INDEX customer_gender_age_idx ON customer (gender, age);
+
+-- age range without a gender, and ordering by age
+CREATE INDEX customer_age_idx ON customer (age);
+
+-- case-insensitive name prefix: lower(name) LIKE 'al%'
+CREATE INDEX customer_name_prefix_idx ON customer (lower(name) text_pattern_ops);
@@ -0,0 +1,19 @@
+-- one row per customer insert, update and delete, written in the same transaction as the change.
+-- tx_id orders the feed: rows are only read once every older transaction has finished, so a
+-- transaction committing late can never slip in behind a consumer's cursor.
+CREATE TABLE customer_change
+(
+    id          BIGSERIAL PRIMARY KEY,
+    tx_id       XID8        NOT NULL DEFAULT pg_current_xact_id(),
+    type        TEXT        NOT NULL,
+    customer_id BIGINT      NOT NULL,
+    name        TEXT,
+    email       TEXT,
+    age         INTEGER,
+    gender      TEXT,
+    version     BIGINT,
+    changed_at  TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX customer_change_position_idx ON customer_change (tx_id, id);
+CREATE INDEX customer_change_changed_at_idx ON customer_change (changed_at);
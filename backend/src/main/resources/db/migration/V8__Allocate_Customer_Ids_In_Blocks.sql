@@ -0,0 +1,2 @@
+-- Hibernate allocates customer ids in blocks of 50 (pooled-lo), matching Customer.ID_ALLOCATION_SIZE
+ALTER SEQUENCE customer_id_seq INCREMENT BY 50;
@@ -0,0 +1,79 @@
+-- customer is hash partitioned on id, so id lookups touch one partition and vacuum and index
+-- maintenance work on 1/16 of the rows at a time. A unique index on a partitioned table has to include
+-- the partition key, so email uniqueness moves to customer_email, partitioned on email and kept in step
+-- by a trigger. Email lookups go through customer_email and then to customer by id, one partition each.
+CREATE TABLE customer_partitioned
+(
+    id      BIGINT  NOT NULL DEFAULT nextval('customer_id_seq'),
+    name    TEXT    NOT NULL,
+    email   TEXT    NOT NULL,
+    age     INTEGER NOT NULL,
+    gender  TEXT    NOT NULL,
+    version BIGINT  NOT NULL DEFAULT 0,
+    PRIMARY KEY (id)
+) PARTITION BY HASH (id);
+
+CREATE TABLE customer_email
+(
+    email       TEXT   NOT NULL,
+    customer_id BIGINT NOT NULL,
+    CONSTRAINT customer_email_unique PRIMARY KEY (email)
+) PARTITION BY HASH (email);
+
+DO
+$$
+    BEGIN
+        FOR i IN 0..15
+            LOOP
+                EXECUTE format('CREATE TABLE customer_p%s PARTITION OF customer_partitioned '
+                                   'FOR VALUES WITH (MODULUS 16, REMAINDER %s)', i, i);
+                EXECUTE format('CREATE TABLE customer_email_p%s PARTITION OF customer_email '
+                                   'FOR VALUES WITH (MODULUS 16, REMAINDER %s)', i, i);
+            END LOOP;
+    END
+$$;
+
+INSERT INTO customer_partitioned (id, name, email, age, gender, version)
+SELECT id, name, email, age, gender, version
+FROM customer;
+
+INSERT INTO customer_email (email, customer_id)
+SELECT email, id
+FROM customer_partitioned;
+
+-- the sequence belongs to the old table and would be dropped with it
+ALTER SEQUENCE customer_id_seq OWNED BY NONE;
+DROP TABLE customer;
+ALTER TABLE customer_partitioned RENAME TO customer;
+ALTER TABLE customer RENAME CONSTRAINT customer_partitioned_pkey TO customer_pkey;
+ALTER SEQUENCE customer_id_seq OWNED BY customer.id;
+
+-- same indexes as before, created on every partition
+CREATE INDEX customer_gender_age_idx ON customer (gender, age);
+CREATE INDEX customer_age_idx ON customer (age);
+CREATE INDEX customer_name_prefix_idx ON customer (lower(name) text_pattern_ops);
+CREATE INDEX customer_name_trgm_idx ON customer USING gin (name gin_trgm_ops);
+CREATE INDEX customer_email_trgm_idx ON customer USING gin (email gin_trgm_ops);
+
+-- a taken email fails the statement with a unique violation, as the old constraint did
+CREATE FUNCTION customer_email_sync() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO customer_email (email, customer_id) VALUES (NEW.email, NEW.id);
+    ELSIF TG_OP = 'UPDATE' THEN
+        DELETE FROM customer_email WHERE email = OLD.email;
+        INSERT INTO customer_email (email, customer_id) VALUES (NEW.email, NEW.id);
+    ELSE
+        DELETE FROM customer_email WHERE email = OLD.email;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER customer_email_sync
+    AFTER INSERT OR DELETE OR UPDATE OF email
+    ON customer
+    FOR EACH ROW
+EXECUTE FUNCTION customer_email_sync();
@@ -33,7 +33,7 @@ public abstract class AbstractTestcontainers {
     }
 
     @BeforeAll
-    static void beforeAll() {
+    protected static void beforeAll() {
         Flyway flyway = Flyway.configure().dataSource(
                 POSTGRE_SQL_CONTAINER.getJdbcUrl(),
                 POSTGRE_SQL_CONTAINER.getUsername(),
@@ -0,0 +1,60 @@
+package com.amigoscode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestRateTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final RequestRate underTest = new RequestRate(clock::get);
+
+    @Test
+    void reportsRateOverCompleteSeconds() {
+        // Given
+        for (int second = 0; second < 10; second++) {
+            for (int i = 0; i < second; i++) {
+                underTest.increment();
+            }
+            clock.addAndGet(1000);
+        }
+        // the second in progress is not counted
+        underTest.increment();
+
+        // When
+        // Then
+        assertThat(underTest.total()).isEqualTo(46);
+        assertThat(underTest.perSecond(1)).isEqualTo(9);
+        assertThat(underTest.perSecond(10)).isEqualTo(4.5);
+        assertThat(underTest.perSecond(60)).isEqualTo(0.75);
+    }
+
+    @Test
+    void forgetsSecondsThatLeftTheWindow() {
+        // Given
+        underTest.increment();
+        underTest.increment();
+
+        // When
+        clock.addAndGet(64_000);
+        underTest.increment();
+        clock.addAndGet(1000);
+
+        // Then
+        assertThat(underTest.total()).isEqualTo(3);
+        assertThat(underTest.perSecond(1)).isEqualTo(1);
+        assertThat(underTest.perSecond(60)).isEqualTo(1.0 / 60);
+    }
+
+    @Test
+    void willThrowWhenWindowIsTooLong() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.perSecond(61))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("window must be between 1 and 60 seconds");
+    }
+}
@@ -0,0 +1,131 @@
+package com.amigoscode;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, String> underTest = new SingleFlight<>("test", meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallsForTheSameKeyShareOneCall() throws Exception {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<SingleFlight.Result<String>> first = executor.submit(() -> underTest.execute(1L, () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "alex";
+        }));
+        awaitCount("executed", 1);
+
+        // When
+        Future<SingleFlight.Result<String>> second = executor.submit(() -> underTest.execute(1L, () -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        awaitCount("shared", 1);
+        release.countDown();
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(new SingleFlight.Result<>("alex", false));
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(new SingleFlight.Result<>("alex", true));
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void waitingCallersGetTheException() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> underTest.load(1L, () -> {
+            await(release);
+            throw new IllegalStateException("not found");
+        }));
+        awaitCount("executed", 1);
+
+        // When
+        Future<String> second = executor.submit(() -> underTest.load(1L, () -> "alex"));
+        awaitCount("shared", 1);
+        release.countDown();
+
+        // Then
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("not found");
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void waitingCallersMakeTheirOwnCallWhenTheFailureIsNotShared() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        Future<SingleFlight.Result<String>> first = executor.submit(() -> underTest.execute(1L, () -> {
+            await(release);
+            throw new IllegalArgumentException("name is missing");
+        }, IllegalStateException.class::isInstance));
+        awaitCount("executed", 1);
+
+        // When
+        Future<SingleFlight.Result<String>> second = executor.submit(() -> underTest.execute(
+                1L, () -> "alex", IllegalStateException.class::isInstance));
+        awaitCount("shared", 1);
+        release.countDown();
+
+        // Then
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(new SingleFlight.Result<>("alex", false));
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(count("executed")).isEqualTo(2);
+    }
+
+    @Test
+    void completedCallsAreNotReused() {
+        // When
+        String first = underTest.load(1L, () -> "alex");
+        String second = underTest.load(1L, () -> "alexander");
+
+        // Then
+        assertThat(first).isEqualTo("alex");
+        assertThat(second).isEqualTo("alexander");
+        assertThat(count("executed")).isEqualTo(2);
+        assertThat(count("shared")).isZero();
+    }
+
+    private double count(String result) {
+        return meterRegistry.get(SingleFlight.METER).tag("result", result).counter().count();
+    }
+
+    private void awaitCount(String result, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(result) < expected && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertThat(count(result)).isEqualTo(expected);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
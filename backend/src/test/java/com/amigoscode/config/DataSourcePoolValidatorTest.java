@@ -0,0 +1,81 @@
+package com.amigoscode.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DataSourcePoolValidatorTest {
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    private final ApplicationContext servletContext = mock(WebApplicationContext.class);
+
+    private final HikariDataSource hikari = new HikariDataSource();
+
+    @BeforeEach
+    void setUp() {
+        hikari.setMaximumPoolSize(20);
+    }
+
+    @Test
+    void acceptsPoolsThatFitInMaxConnections() {
+        // Given
+        DataSourcePoolValidator underTest = validator(4, 200, false);
+
+        // When
+        // Then
+        assertThat(underTest.problems(20, 97)).isEmpty();
+    }
+
+    @Test
+    void reportsPoolsExceedingMaxConnectionsAndRequestThreads() {
+        // Given
+        DataSourcePoolValidator underTest = validator(6, 10, false);
+
+        // When
+        // Then
+        assertThat(underTest.problems(20, 97)).containsExactly(
+                "6 instances with 20 connections each need 120, Postgres accepts 97",
+                "pool of 20 is larger than the 10 request threads that borrow from it"
+        );
+    }
+
+    @Test
+    void willFailStartupWhenStrict() throws SQLException {
+        // Given
+        when(dataSource.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(dataSource.unwrap(HikariDataSource.class)).thenReturn(hikari);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(97);
+        DataSourcePoolValidator underTest = validator(6, 200, true);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.run(null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Invalid connection pool size: 6 instances with 20 connections each need 120, Postgres accepts 97");
+    }
+
+    private DataSourcePoolValidator validator(int instances, int requestThreads, boolean failOnInvalidPool) {
+        return new DataSourcePoolValidator(
+                dataSource, jdbcTemplate, servletContext, instances, failOnInvalidPool, requestThreads);
+    }
+}
@@ -0,0 +1,83 @@
+package com.amigoscode.config;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesFilter underTest = new ReadYourWritesFilter(Duration.ofSeconds(5));
+
+    @Test
+    void writePinsTheRequestAndSetsTheCookie() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/customers");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean pinned = new AtomicBoolean();
+
+        // When
+        underTest.doFilter(request, response, chainRecordingPin(pinned));
+
+        // Then
+        assertThat(pinned).isTrue();
+        assertThat(response.getCookie(ReadYourWritesFilter.COOKIE)).isNotNull();
+    }
+
+    @Test
+    void batchGetIsARead() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/customers/batch-get");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean pinned = new AtomicBoolean();
+
+        // When
+        underTest.doFilter(request, response, chainRecordingPin(pinned));
+
+        // Then
+        assertThat(pinned).isFalse();
+        assertThat(response.getCookie(ReadYourWritesFilter.COOKIE)).isNull();
+    }
+
+    @Test
+    void asyncHandlerOfAPinnedRequestRunsPinned() throws Exception {
+        // Given
+        PrimaryPinCallableInterceptor interceptor = new PrimaryPinCallableInterceptor();
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest("GET", "/api/v1/customers/stream"));
+        Callable<Boolean> handler = ReplicaRoutingDataSource::isPinnedToPrimary;
+        try (ReplicaRoutingDataSource.Pin ignored = ReplicaRoutingDataSource.pinToPrimary()) {
+            interceptor.beforeConcurrentHandling(request, handler);
+        }
+
+        // When
+        CompletableFuture<boolean[]> async = CompletableFuture.supplyAsync(() -> {
+            interceptor.preProcess(request, handler);
+            boolean during = ReplicaRoutingDataSource.isPinnedToPrimary();
+            interceptor.postProcess(request, handler, null);
+            return new boolean[]{during, ReplicaRoutingDataSource.isPinnedToPrimary()};
+        });
+
+        // Then
+        assertThat(async.get()).containsExactly(true, false);
+    }
+
+    private static MockFilterChain chainRecordingPin(AtomicBoolean pinned) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                pinned.set(ReplicaRoutingDataSource.isPinnedToPrimary());
+            }
+        });
+    }
+}
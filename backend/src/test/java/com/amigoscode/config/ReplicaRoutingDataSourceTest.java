@@ -0,0 +1,64 @@
+package com.amigoscode.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final ReplicaRoutingDataSource underTest = new ReplicaRoutingDataSource(
+            new HikariDataSource(),
+            List.of(new HikariDataSource(), new HikariDataSource()),
+            ReplicaRoutingDataSource.Balancing.ROUND_ROBIN
+    );
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void readWriteWorkGoesToThePrimary() {
+        // When
+        // Then
+        assertThat(underTest.determineCurrentLookupKey()).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransactionsRotateOverReplicas() {
+        // Given
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When
+        // Then
+        assertThat(List.of(
+                underTest.determineCurrentLookupKey(),
+                underTest.determineCurrentLookupKey(),
+                underTest.determineCurrentLookupKey()
+        )).containsExactly(0, 1, 0);
+    }
+
+    @Test
+    void pinnedReadOnlyTransactionsGoToThePrimary() {
+        // Given
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When
+        Object pinned;
+        try (ReplicaRoutingDataSource.Pin outer = ReplicaRoutingDataSource.pinToPrimary()) {
+            try (ReplicaRoutingDataSource.Pin inner = ReplicaRoutingDataSource.pinToPrimary()) {
+                // closing the inner pin must not release the outer one
+            }
+            pinned = underTest.determineCurrentLookupKey();
+        }
+
+        // Then
+        assertThat(pinned).isEqualTo("primary");
+        assertThat(underTest.determineCurrentLookupKey()).isEqualTo(0);
+    }
+}
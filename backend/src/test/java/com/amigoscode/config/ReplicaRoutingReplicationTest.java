@@ -0,0 +1,147 @@
+package com.amigoscode.config;
+
+import com.amigoscode.AbstractTestcontainers;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs a second Postgres as a streaming replica of the Testcontainers primary, cloned with
+ * {@code pg_basebackup}, and routes through a {@link ReplicaRoutingDataSource} in front of both.
+ */
+class ReplicaRoutingReplicationTest extends AbstractTestcontainers {
+
+    private static final String REPLICA_DATA = "/var/lib/postgresql/data/replica";
+    private static final String DEFAULT_NETWORK = "bridge";
+
+    private static GenericContainer<?> replica;
+
+    private HikariDataSource primaryDataSource;
+    private HikariDataSource replicaDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeAll
+    static void startReplica() throws Exception {
+        POSTGRE_SQL_CONTAINER.execInContainer("bash", "-c",
+                "echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\"");
+        getJdbcTemplate().execute("SELECT pg_reload_conf()");
+
+        // neither container joins a network of its own, so the replica reaches the primary on Docker's default bridge
+        String primaryHost = POSTGRE_SQL_CONTAINER.getContainerInfo().getNetworkSettings()
+                .getNetworks().get(DEFAULT_NETWORK).getIpAddress();
+        replica = new GenericContainer<>(DockerImageName.parse(POSTGRE_SQL_CONTAINER.getDockerImageName()))
+                .withEnv("PGPASSWORD", POSTGRE_SQL_CONTAINER.getPassword())
+                .withExposedPorts(5432)
+                .withCreateContainerCmdModifier(cmd -> cmd
+                        .withUser("postgres")
+                        .withEntrypoint("bash", "-c", """
+                                pg_basebackup -h %s -p 5432 -U %s -D %s -R -X stream \
+                                && chmod 0700 %s \
+                                && exec postgres -D %s
+                                """.formatted(primaryHost, POSTGRE_SQL_CONTAINER.getUsername(),
+                                REPLICA_DATA, REPLICA_DATA, REPLICA_DATA)))
+                .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1));
+        replica.start();
+    }
+
+    @AfterAll
+    static void stopReplica() {
+        replica.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        primaryDataSource = dataSource(POSTGRE_SQL_CONTAINER.getJdbcUrl());
+        replicaDataSource = dataSource("jdbc:postgresql://%s:%s/%s".formatted(
+                replica.getHost(), replica.getMappedPort(5432), POSTGRE_SQL_CONTAINER.getDatabaseName()));
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                primaryDataSource, List.of(replicaDataSource), ReplicaRoutingDataSource.Balancing.LEAST_CONNECTIONS);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primaryDataSource.close();
+        replicaDataSource.close();
+    }
+
+    @Test
+    void readOnlyTransactionsRunOnTheReplica() {
+        // When
+        Boolean readOnlyInRecovery = readOnly.execute(status -> inRecovery());
+        Boolean readWriteInRecovery = readWrite.execute(status -> inRecovery());
+
+        // Then
+        assertThat(readOnlyInRecovery).isTrue();
+        assertThat(readWriteInRecovery).isFalse();
+    }
+
+    @Test
+    void pinnedReadOnlyTransactionsRunOnThePrimary() {
+        // When
+        Boolean inRecovery;
+        try (ReplicaRoutingDataSource.Pin ignored = ReplicaRoutingDataSource.pinToPrimary()) {
+            inRecovery = readOnly.execute(status -> inRecovery());
+        }
+
+        // Then
+        assertThat(inRecovery).isFalse();
+    }
+
+    @Test
+    void writesReachTheReplica() throws InterruptedException {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update(
+                "INSERT INTO customer (name, email, age, gender) VALUES (?, ?, ?, ?)",
+                FAKER.name().fullName(), email, 20, "MALE"));
+
+        // When
+        boolean replicated = false;
+        for (int attempt = 0; attempt < 50 && !replicated; attempt++) {
+            replicated = Boolean.TRUE.equals(readOnly.execute(status -> jdbcTemplate.queryForObject(
+                    "SELECT count(*) > 0 FROM customer WHERE email = ?", Boolean.class, email)));
+            if (!replicated)
+                Thread.sleep(100);
+        }
+
+        // Then
+        assertThat(replicated).isTrue();
+    }
+
+    private Boolean inRecovery() {
+        return jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class);
+    }
+
+    private static HikariDataSource dataSource(String url) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(POSTGRE_SQL_CONTAINER.getUsername());
+        dataSource.setPassword(POSTGRE_SQL_CONTAINER.getPassword());
+        dataSource.setMaximumPoolSize(2);
+        return dataSource;
+    }
+}
@@ -0,0 +1,242 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.DuplicateResourceException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerCachingDataAccessServiceTest {
+
+    private CustomerCachingDataAccessService underTest;
+    private SimpleMeterRegistry meterRegistry;
+    @Mock
+    private CustomerDAO delegate;
+    @Mock
+    private CustomerEmailFilter emailFilter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CustomerCachingDataAccessService(delegate, emailFilter, 100, Duration.ofMinutes(1), meterRegistry);
+    }
+
+    @Test
+    void willReadThroughOnlyOnceForTheSameId() {
+        // Given
+        long id = 1;
+        Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
+        when(delegate.selectCustomerById(id)).thenReturn(Optional.of(customer));
+
+        // When
+        Optional<Customer> first = underTest.selectCustomerById(id);
+        Optional<Customer> second = underTest.selectCustomerById(id);
+
+        // Then
+        assertThat(first).hasValue(customer);
+        assertThat(second).hasValue(customer);
+        verify(delegate, times(1)).selectCustomerById(id);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void willAnswerVersionFromCachedCustomer() {
+        // Given
+        long id = 1;
+        when(delegate.selectCustomerById(id))
+                .thenReturn(Optional.of(new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE, 2L)));
+        underTest.selectCustomerById(id);
+
+        // When
+        Optional<Long> actual = underTest.selectCustomerVersion(id);
+
+        // Then
+        assertThat(actual).hasValue(2L);
+        verify(delegate, never()).selectCustomerVersion(id);
+    }
+
+    @Test
+    void willNotCacheMissingCustomers() {
+        // Given
+        long id = 1;
+        when(delegate.selectCustomerById(id)).thenReturn(Optional.empty());
+
+        // When
+        underTest.selectCustomerById(id);
+        Optional<Customer> actual = underTest.selectCustomerById(id);
+
+        // Then
+        assertThat(actual).isEmpty();
+        verify(delegate, times(2)).selectCustomerById(id);
+    }
+
+    @Test
+    void willNotExposeCachedInstances() {
+        // Given
+        long id = 1;
+        Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
+        when(delegate.selectCustomerById(id)).thenReturn(Optional.of(customer));
+
+        // When
+        underTest.selectCustomerById(id).orElseThrow().setName("changed");
+
+        // Then
+        assertThat(underTest.selectCustomerById(id)).hasValueSatisfying(c ->
+                assertThat(c.getName()).isEqualTo("foo"));
+    }
+
+    @Test
+    void existsPersonWithIdIsAnsweredFromCache() {
+        // Given
+        long id = 1;
+        when(delegate.selectCustomerById(id))
+                .thenReturn(Optional.of(new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE)));
+        underTest.selectCustomerById(id);
+
+        // When
+        boolean actual = underTest.existsPersonWithId(id);
+
+        // Then
+        assertThat(actual).isTrue();
+        verify(delegate, never()).existsPersonWithId(id);
+    }
+
+    @Test
+    void updateCustomerInvalidatesEntry() {
+        // Given
+        long id = 1;
+        Customer update = new Customer(id, "bar", "foo@gmail.com", 20, Gender.MALE);
+        when(delegate.selectCustomerById(id))
+                .thenReturn(Optional.of(new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE)))
+                .thenReturn(Optional.of(update));
+        underTest.selectCustomerById(id);
+
+        // When
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(underTest.selectCustomerById(id)).hasValue(update);
+        verify(delegate).updateCustomer(update);
+    }
+
+    @Test
+    void failedUpdateCustomerInvalidatesEntry() {
+        // Given
+        long id = 1;
+        Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
+        when(delegate.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        underTest.selectCustomerById(id);
+        Customer update = new Customer(id, "foo", "taken@gmail.com", 20, Gender.MALE);
+        doThrow(new DuplicateResourceException("email already taken")).when(delegate).updateCustomer(update);
+
+        // When
+        assertThatThrownBy(() -> underTest.updateCustomer(update))
+                .isInstanceOf(DuplicateResourceException.class);
+
+        // Then
+        underTest.selectCustomerById(id);
+        verify(delegate, times(2)).selectCustomerById(id);
+    }
+
+    @Test
+    void deleteCustomerByIdInvalidatesEntry() {
+        // Given
+        long id = 1;
+        when(delegate.selectCustomerById(id))
+                .thenReturn(Optional.of(new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE)))
+                .thenReturn(Optional.empty());
+        underTest.selectCustomerById(id);
+
+        // When
+        underTest.deleteCustomerById(id);
+
+        // Then
+        assertThat(underTest.selectCustomerById(id)).isEmpty();
+        verify(delegate).deleteCustomerById(id);
+    }
+
+    @Test
+    void existsPersonWithEmailSkipsDelegateWhenFilterRulesEmailOut() {
+        // Given
+        String email = "foo@gmail.com";
+        when(emailFilter.mightContain(email)).thenReturn(false);
+
+        // When
+        boolean actual = underTest.existsPersonWithEmail(email);
+
+        // Then
+        assertThat(actual).isFalse();
+        verify(delegate, never()).existsPersonWithEmail(email);
+    }
+
+    @Test
+    void existsPersonWithEmailAsksDelegateWhenFilterMightContainEmail() {
+        // Given
+        String email = "foo@gmail.com";
+        when(emailFilter.mightContain(email)).thenReturn(true);
+        when(delegate.existsPersonWithEmail(email)).thenReturn(true);
+
+        // When
+        boolean actual = underTest.existsPersonWithEmail(email);
+
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void selectExistingEmailsOnlyQueriesPossibleMatches() {
+        // Given
+        when(emailFilter.mightContain("foo@gmail.com")).thenReturn(true);
+        when(emailFilter.mightContain("bar@gmail.com")).thenReturn(false);
+        when(delegate.selectExistingEmails(List.of("foo@gmail.com"))).thenReturn(Set.of("foo@gmail.com"));
+
+        // When
+        Set<String> actual = underTest.selectExistingEmails(List.of("foo@gmail.com", "bar@gmail.com"));
+
+        // Then
+        assertThat(actual).containsExactly("foo@gmail.com");
+    }
+
+    @Test
+    void insertCustomerAddsEmailToFilter() {
+        // Given
+        Customer customer = new Customer("foo", "foo@gmail.com", 20, Gender.MALE);
+        when(delegate.insertCustomer(customer)).thenReturn(1L);
+
+        // When
+        underTest.insertCustomer(customer);
+
+        // Then
+        verify(emailFilter).add("foo@gmail.com");
+    }
+
+    @Test
+    void selectCustomersByIdsOnlyLoadsUncachedCustomers() {
+        // Given
+        Customer cached = new Customer(1L, "foo", "foo@gmail.com", 20, Gender.MALE);
+        Customer uncached = new Customer(2L, "bar", "bar@gmail.com", 30, Gender.FEMALE);
+        when(delegate.selectCustomerById(1L)).thenReturn(Optional.of(cached));
+        when(delegate.selectCustomersByIds(anyCollection())).thenReturn(List.of(uncached));
+        underTest.selectCustomerById(1L);
+
+        // When
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(1L, 2L, 3L));
+
+        // Then
+        assertThat(actual).containsExactlyInAnyOrder(cached, uncached);
+        verify(delegate).selectCustomersByIds(argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(2L, 3L))));
+    }
+}
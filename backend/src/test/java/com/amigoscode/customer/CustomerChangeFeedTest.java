@@ -0,0 +1,81 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerChangeFeedTest {
+
+    private CustomerChangeFeed underTest;
+
+    @Mock
+    private CustomerOutbox customerOutbox;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerChangeFeed(customerOutbox, 500, Duration.ofSeconds(1), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void nextCursorIsTheLastChange() {
+        // Given
+        List<CustomerChange> changes = List.of(
+                new CustomerChange("7-1", CustomerChange.Type.INSERTED, 1L,
+                        new Customer(1L, "foo", "foo@gmail.com", 20, Gender.MALE, 0L), Instant.now()),
+                new CustomerChange("7-2", CustomerChange.Type.DELETED, 1L, null, Instant.now())
+        );
+        when(customerOutbox.selectChangesAfter("5-9", 10)).thenReturn(changes);
+
+        // When
+        CustomerChangePage actual = underTest.getChanges("5-9", 10);
+
+        // Then
+        assertThat(actual.changes()).isEqualTo(changes);
+        assertThat(actual.next()).isEqualTo("7-2");
+    }
+
+    @Test
+    void nextCursorStaysWhenThereAreNoChanges() {
+        // Given
+        when(customerOutbox.selectChangesAfter("5-9", 10)).thenReturn(List.of());
+
+        // When
+        CustomerChangePage actual = underTest.getChanges("5-9", 10);
+
+        // Then
+        assertThat(actual.changes()).isEmpty();
+        assertThat(actual.next()).isEqualTo("5-9");
+    }
+
+    @Test
+    void willThrowWhenLimitIsOutOfBounds() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getChanges(null, CustomerChangeFeed.MAX_BATCH_SIZE + 1))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("limit must be between 1 and 1000");
+        verifyNoInteractions(customerOutbox);
+    }
+
+    @Test
+    void willThrowWhenSubscribingWithMalformedCursor() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.subscribe("not-a-cursor"))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("invalid change cursor [not-a-cursor]");
+    }
+}
@@ -0,0 +1,66 @@
+package com.amigoscode.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.UnknownFieldSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static com.amigoscode.customer.CustomerProtobufHttpMessageConverter.APPLICATION_PROTOBUF;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CustomerControllerTest {
+
+    private final CustomerProtobufHttpMessageConverter protobuf = new CustomerProtobufHttpMessageConverter();
+    private CustomerListDataAccessService customerDAO;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        customerDAO = new CustomerListDataAccessService();
+        ObjectMapper objectMapper = new ObjectMapper();
+        CustomerController controller = new CustomerController(
+                new CustomerService(customerDAO), mock(CustomerChangeFeed.class), objectMapper);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper), protobuf)
+                .build();
+    }
+
+    @Test
+    void getCustomerAsProtobuf() throws Exception {
+        // Given
+        Long id = customerDAO.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/customers/{id}", id).accept(APPLICATION_PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_PROTOBUF))
+                .andReturn();
+
+        // Then
+        Customer actual = (Customer) protobuf.read(Customer.class, null,
+                new MockHttpInputMessage(result.getResponse().getContentAsByteArray()));
+        assertThat(actual).isEqualTo(new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE));
+    }
+
+    @Test
+    void getCustomersAsProtobuf() throws Exception {
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/customers").accept(APPLICATION_PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_PROTOBUF))
+                .andReturn();
+
+        // Then
+        UnknownFieldSet list = UnknownFieldSet.parseFrom(result.getResponse().getContentAsByteArray());
+        assertThat(list.getField(1).getLengthDelimitedList()).hasSize(customerDAO.selectAllCustomers().size());
+    }
+}
@@ -0,0 +1,136 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerEmailFilterTest {
+
+    private CustomerEmailFilter underTest;
+    @Mock
+    private CustomerDAO customerDAO;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerEmailFilter(customerDAO, 1_000, 0.01, Duration.ofHours(1), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void mightContainAnyEmailBeforeFirstBuild() {
+        // When
+        boolean actual = underTest.mightContain("foo@gmail.com");
+
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void rebuildLoadsEmailsOfExistingCustomers() {
+        // Given
+        doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(0);
+            consumer.accept(new Customer(1L, "foo", "foo@gmail.com", 20, Gender.MALE));
+            return null;
+        }).when(customerDAO).streamAllCustomers(any());
+
+        // When
+        underTest.rebuild();
+
+        // Then
+        assertThat(underTest.mightContain("foo@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("bar@gmail.com")).isFalse();
+    }
+
+    @Test
+    void addedEmailsSurviveARebuild() {
+        // Given
+        doAnswer(invocation -> {
+            underTest.add("bar@gmail.com");
+            return null;
+        }).when(customerDAO).streamAllCustomers(any());
+
+        // When
+        underTest.rebuild();
+
+        // Then
+        assertThat(underTest.mightContain("bar@gmail.com")).isTrue();
+    }
+
+    @Test
+    void emailOfAnInsertStillInFlightWhenARebuildStartsIsKept() {
+        // Given an email added before the rebuild, whose insert the stream does not see
+        underTest.rebuild();
+        underTest.add("bar@gmail.com");
+
+        // When
+        underTest.rebuild();
+
+        // Then
+        assertThat(underTest.mightContain("bar@gmail.com")).isTrue();
+    }
+
+    @Test
+    void emailsAddedBeforeTheInFlightWindowAreLeftToTheStream() throws Exception {
+        // Given an email added and since deleted, longer ago than the window
+        underTest = new CustomerEmailFilter(customerDAO, 1_000, 0.01, Duration.ofHours(1), Duration.ZERO);
+        underTest.add("bar@gmail.com");
+        Thread.sleep(1);
+
+        // When
+        underTest.rebuild();
+
+        // Then
+        assertThat(underTest.mightContain("bar@gmail.com")).isFalse();
+    }
+
+    @Test
+    void emailsAddedWhileTheRebuiltFilterIsSwappedInAreNotLost() throws Exception {
+        // Given writers that start as the stream ends, racing the swap, with inserts the stream never saw
+        int writers = 4;
+        int emailsPerWriter = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> results = new ArrayList<>();
+        doAnswer(invocation -> {
+            for (int writer = 0; writer < writers; writer++) {
+                String prefix = "writer" + writer + "-";
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < emailsPerWriter; i++)
+                        underTest.add(prefix + i + "@gmail.com");
+                }));
+            }
+            return null;
+        }).when(customerDAO).streamAllCustomers(any());
+
+        try {
+            for (int rebuild = 0; rebuild < 10; rebuild++) {
+                // When
+                underTest.rebuild();
+                for (Future<?> result : results)
+                    result.get();
+                results.clear();
+
+                // Then
+                for (int writer = 0; writer < writers; writer++)
+                    for (int i = 0; i < emailsPerWriter; i++)
+                        assertThat(underTest.mightContain("writer" + writer + "-" + i + "@gmail.com")).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.amigoscode.customer;
 
 import com.amigoscode.AbstractTestcontainers;
+import com.amigoscode.exception.DuplicateResourceException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.dao.OptimisticLockingFailureException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
@@ -17,9 +23,11 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
     @BeforeEach
     void setUp() {
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
         underTest = new CustomerJDBCDataAccessService(
-                getJdbcTemplate(),
-                customerRowMapper
+                jdbcTemplate,
+                customerRowMapper,
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource())
         );
     }
 
@@ -42,6 +50,111 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         assertThat(actual).isNotEmpty();
     }
 
+    @Test
+    void selectCustomerPage() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().emailAddress() + "-" + UUID.randomUUID(),
+                    20,
+                    Gender.MALE
+            ));
+        }
+        List<Customer> firstPage = underTest.selectCustomerPage(0L, 2);
+
+        // When
+        List<Customer> actual = underTest.selectCustomerPage(firstPage.get(1).getId(), 2);
+
+        // Then
+        assertThat(firstPage).hasSize(2);
+        assertThat(actual).isNotEmpty()
+                .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(firstPage.get(1).getId()));
+    }
+
+    @Test
+    void selectCustomersFiltersAndSorts() {
+        // Given
+        String prefix = "Q_" + UUID.randomUUID().toString().substring(0, 8);
+        List<Long> ids = new ArrayList<>();
+        for (int age : new int[]{40, 20, 30}) {
+            ids.add(underTest.insertCustomer(new Customer(
+                    prefix + " " + FAKER.name().lastName(),
+                    FAKER.internet().emailAddress() + "-" + UUID.randomUUID(),
+                    age,
+                    Gender.FEMALE
+            )));
+        }
+
+        // When
+        List<Customer> actual = underTest.selectCustomers(new CustomerQuery(
+                prefix.toLowerCase(), null, 25, null, Gender.FEMALE, CustomerQuery.SortField.AGE, null));
+
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(ids.get(2), ids.get(0));
+    }
+
+    @Test
+    void searchCustomersMatchesPartialName() {
+        // Given
+        String name = "Searchable " + UUID.randomUUID().toString().substring(0, 8);
+        Long id = underTest.insertCustomer(new Customer(
+                name,
+                FAKER.internet().emailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.MALE
+        ));
+
+        // When
+        List<Customer> actual = underTest.searchCustomers(name.substring(3).toUpperCase(), 10);
+
+        // Then
+        assertThat(actual).extracting(Customer::getId).contains(id);
+    }
+
+    @Test
+    void updateCustomerChecksAndIncrementsVersion() {
+        // Given
+        Long id = underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().emailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.MALE
+        ));
+        Customer update = new Customer();
+        update.setId(id);
+        update.setAge(21);
+        update.setVersion(0L);
+
+        // When
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(underTest.selectCustomerVersion(id)).hasValue(1L);
+        assertThatThrownBy(() -> underTest.updateCustomer(update))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    void streamAllCustomers() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                20,
+                Gender.MALE
+        ));
+
+        // When
+        List<Customer> actual = new ArrayList<>();
+        underTest.streamAllCustomers(actual::add);
+
+        // Then
+        assertThat(actual).isSortedAccordingTo((a, b) -> a.getId().compareTo(b.getId()))
+                .anySatisfy(c -> assertThat(c.getEmail()).isEqualTo(email));
+    }
+
     @Test
     void selectCustomerById() {
         // Given
@@ -55,7 +168,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
         underTest.insertCustomer(customer);
 
-        int id = underTest.selectAllCustomers().stream()
+        long id = underTest.selectAllCustomers().stream()
                 .filter(c -> c.getEmail().equals(email))
                 .map(Customer::getId)
                 .findFirst()
@@ -75,7 +188,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
     @Test
     void willReturnEmptyWhenSelectCustomerById() {
         // Given
-        int id = -1;
+        long id = -1;
         // When
         Optional<Customer> actual = underTest.selectCustomerById(id);
         // Then
@@ -102,6 +215,130 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         assertThat(actual).isPresent();
     }
 
+    @Test
+    void insertCustomers() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        String takenEmail = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), takenEmail, 20, Gender.MALE));
+
+        List<Customer> customers = List.of(
+                new Customer(FAKER.name().fullName(), email, 20, Gender.MALE),
+                new Customer(FAKER.name().fullName(), takenEmail, 21, Gender.FEMALE)
+        );
+
+        // When
+        int actual = underTest.insertCustomers(customers);
+
+        // Then
+        assertThat(actual).isEqualTo(1);
+        assertThat(underTest.existsPersonWithEmail(email)).isTrue();
+    }
+
+    @Test
+    void insertCustomersCountsEveryCustomerOfALargeBatchWithATakenEmail() {
+        // Given a batch large enough for the driver to split it, failing on its last row
+        String takenEmail = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), takenEmail, 20, Gender.MALE));
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++)
+            customers.add(new Customer(FAKER.name().fullName(), UUID.randomUUID() + "@gmail.com", 20, Gender.MALE));
+        customers.add(new Customer(FAKER.name().fullName(), takenEmail, 21, Gender.FEMALE));
+
+        // When
+        int actual = underTest.insertCustomers(customers);
+
+        // Then
+        assertThat(actual).isEqualTo(2_000);
+        assertThat(underTest.selectExistingEmails(customers.stream().map(Customer::getEmail).toList()))
+                .hasSize(2_001);
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        String unknownEmail = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE));
+
+        // When
+        var actual = underTest.selectExistingEmails(List.of(email, unknownEmail));
+
+        // Then
+        assertThat(actual).containsExactly(email);
+    }
+
+    @Test
+    void willThrowWhenEmailIsTakenWhileInsertingCustomer() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.insertCustomer(
+                new Customer(FAKER.name().fullName(), email, 21, Gender.FEMALE)))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("email already taken");
+    }
+
+    @Test
+    void emailIsReleasedWhenChangedOrDeleted() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        String newEmail = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE));
+
+        // When
+        Customer update = new Customer();
+        update.setId(id);
+        update.setEmail(newEmail);
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(underTest.existsPersonWithEmail(email)).isFalse();
+        assertThat(underTest.existsPersonWithEmail(newEmail)).isTrue();
+
+        // When
+        underTest.deleteCustomerById(id);
+
+        // Then
+        assertThat(underTest.existsPersonWithEmail(newEmail)).isFalse();
+    }
+
+    @Test
+    void emailIsNotResyncedWhenSetToItsCurrentValue() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE));
+        String emailRowVersion = "SELECT xmin::text FROM customer_email WHERE email = ?";
+        String before = getJdbcTemplate().queryForObject(emailRowVersion, String.class, email);
+
+        // When
+        Customer update = new Customer();
+        update.setId(id);
+        update.setEmail(email);
+        update.setAge(21);
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(getJdbcTemplate().queryForObject(emailRowVersion, String.class, email)).isEqualTo(before);
+    }
+
+    @Test
+    void selectCustomerByIdScansOnePartition() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE));
+
+        // When
+        String plan = String.join("\n", getJdbcTemplate().queryForList(
+                "EXPLAIN SELECT id,name,email,age,gender,version FROM customer WHERE id = ?", String.class, id));
+
+        // Then
+        assertThat(plan).containsOnlyOnce("customer_p");
+    }
+
     @Test
     void existsPersonWithEmail() {
         // Given
@@ -146,7 +383,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
         underTest.insertCustomer(customer);
 
-        int id = underTest.selectAllCustomers().stream()
+        long id = underTest.selectAllCustomers().stream()
                 .filter(c -> c.getEmail().equals(email))
                 .map(Customer::getId)
                 .findFirst()
@@ -161,7 +398,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
     @Test
     void existsPersonWithIdReturnFalseWhenIdIsNotPresent() {
         // Given
-        int id = -1;
+        long id = -1;
 
         // When
         boolean actual = underTest.existsPersonWithId(id);
@@ -183,7 +420,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
         underTest.insertCustomer(customer);
 
-        int id = underTest.selectAllCustomers().stream()
+        long id = underTest.selectAllCustomers().stream()
                 .filter(c -> c.getEmail().equals(email))
                 .map(Customer::getId)
                 .findFirst()
@@ -209,7 +446,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
         underTest.insertCustomer(customer);
 
-        int id = underTest.selectAllCustomers().stream()
+        long id = underTest.selectAllCustomers().stream()
                 .filter(c -> c.getEmail().equals(email))
                 .map(Customer::getId)
                 .findFirst()
@@ -245,7 +482,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         );
 
         underTest.insertCustomer(customer);
-        int id = underTest.selectAllCustomers().stream()
+        long id = underTest.selectAllCustomers().stream()
                 .filter(c -> c.getEmail().equals(email))
                 .map(Customer::getId)
                 .findFirst()
@@ -280,7 +517,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         );
 
         underTest.insertCustomer(customer);
-        int id = underTest.selectAllCustomers().stream()
+        long id = underTest.selectAllCustomers().stream()
                 .filter(c -> c.getEmail().equals(email))
                 .map(Customer::getId)
                 .findFirst()
@@ -302,4 +539,48 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         assertThat(actual).isPresent().hasValue(update);
     }
 
+    @Test
+    void willUpdateOnlyChangedColumns() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                20,
+                Gender.MALE
+        );
+
+        underTest.insertCustomer(customer);
+        long id = underTest.selectAllCustomers().stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        // When
+        Customer update = new Customer();
+        update.setId(id);
+        update.setAge(30);
+        update.setGender(Gender.FEMALE);
+
+        underTest.updateCustomer(update);
+
+        // Then
+        Optional<Customer> actual = underTest.selectCustomerById(id);
+        assertThat(actual).isPresent().hasValue(new Customer(id, customer.getName(), email, 30, Gender.FEMALE));
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE));
+
+        // When
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(id, -1L));
+
+        // Then
+        assertThat(actual).extracting(Customer::getEmail).containsExactly(email);
+    }
 }
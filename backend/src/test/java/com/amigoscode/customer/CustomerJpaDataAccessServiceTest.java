@@ -1,15 +1,43 @@
 package com.amigoscode.customer;
 
+import com.amigoscode.exception.DuplicateResourceException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Query;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class CustomerJpaDataAccessServiceTest {
@@ -17,10 +45,16 @@ class CustomerJpaDataAccessServiceTest {
     private CustomerJpaDataAccessService underTest;
     @Mock
     private CustomerRepository customerRepository;
+    @Mock
+    private CustomerOutbox customerOutbox;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @BeforeEach
     void setUp() {
-        underTest = new CustomerJpaDataAccessService(customerRepository);
+        underTest = new CustomerJpaDataAccessService(customerRepository, customerOutbox, entityManager, transactionManager);
     }
 
     @Test
@@ -32,10 +66,103 @@ class CustomerJpaDataAccessServiceTest {
         verify(customerRepository).findAll();
     }
 
+    @Test
+    void selectCustomerPage() {
+        // Given
+        long afterId = 10;
+        int limit = 20;
+
+        // When
+        underTest.selectCustomerPage(afterId, limit);
+
+        // Then
+        verify(customerRepository).findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+    }
+
+    @Test
+    void streamAllCustomersKeepsNoCustomerInThePersistenceContext() {
+        // Given
+        List<Customer> stored = List.of(
+                new Customer(1L, "foo", "foo@gmail.com", 2, Gender.MALE),
+                new Customer(2L, "bar", "bar@gmail.com", 3, Gender.FEMALE),
+                new Customer(3L, "baz", "baz@gmail.com", 4, Gender.MALE)
+        );
+        // stands in for the persistence context: rows join it as the cursor reads them
+        Set<Customer> managed = new HashSet<>();
+        AtomicBoolean closed = new AtomicBoolean();
+        when(customerRepository.streamAllOrderedById()).thenReturn(stored.stream()
+                .peek(managed::add)
+                .onClose(() -> closed.set(true)));
+        doAnswer(invocation -> managed.remove(invocation.<Customer>getArgument(0)))
+                .when(entityManager).detach(any());
+        List<Integer> managedWhenHandedOver = new ArrayList<>();
+        List<Customer> actual = new ArrayList<>();
+
+        // When
+        underTest.streamAllCustomers(customer -> {
+            managedWhenHandedOver.add(managed.size());
+            actual.add(customer);
+        });
+
+        // Then
+        assertThat(actual).isEqualTo(stored);
+        assertThat(managedWhenHandedOver).containsOnly(0);
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void selectCustomersSortsByRequestedFieldThenId() {
+        // Given
+        CustomerQuery query = new CustomerQuery("al", null, null, null, Gender.MALE,
+                CustomerQuery.SortField.NAME, CustomerQuery.Direction.DESC);
+
+        // When
+        underTest.selectCustomers(query);
+
+        // Then
+        verify(customerRepository).findAll(
+                ArgumentMatchers.<Specification<Customer>>any(),
+                eq(Sort.by(Sort.Direction.DESC, "name").and(Sort.by("id")))
+        );
+    }
+
+    @Test
+    void selectCustomersByUnknownEmailSkipsTheQuery() {
+        // Given
+        CustomerQuery query = new CustomerQuery(null, "foo@gmail.com", null, null, null,
+                CustomerQuery.SortField.ID, CustomerQuery.Direction.ASC);
+        when(customerRepository.findIdByEmail("foo@gmail.com")).thenReturn(Optional.empty());
+
+        // When
+        List<Customer> actual = underTest.selectCustomers(query);
+
+        // Then
+        assertThat(actual).isEmpty();
+        verify(customerRepository, never()).findAll(ArgumentMatchers.<Specification<Customer>>any(), any(Sort.class));
+    }
+
+    @Test
+    void searchCustomersEscapesLikeWildcards() {
+        // When
+        underTest.searchCustomers("50%_off", 20);
+
+        // Then
+        verify(customerRepository).search("50%_off", "%50\\%\\_off%", 20);
+    }
+
+    @Test
+    void selectCustomerVersion() {
+        // When
+        underTest.selectCustomerVersion(1L);
+
+        // Then
+        verify(customerRepository).findVersionById(1L);
+    }
+
     @Test
     void selectCustomerById() {
         // Given
-        int id = 1;
+        long id = 1;
 
         // When
         underTest.selectCustomerById(id);
@@ -47,13 +174,85 @@ class CustomerJpaDataAccessServiceTest {
     @Test
     void insertCustomer() {
         // Given
-        Customer customer = new Customer(1, "foo", "foo@gmail.com", 2, Gender.MALE);
+        Customer customer = new Customer(1L, "foo", "foo@gmail.com", 2, Gender.MALE);
+        when(customerRepository.saveAndFlush(customer)).thenReturn(customer);
+
+        // When
+        Long actual = underTest.insertCustomer(customer);
+
+        // Then
+        verify(customerRepository).saveAndFlush(customer);
+        verify(customerOutbox).record(CustomerChange.Type.INSERTED, customer);
+        assertThat(actual).isEqualTo(1);
+    }
+
+    @Test
+    void insertCustomers() {
+        // Given
+        List<Customer> customers = List.of(new Customer(1L, "foo", "foo@gmail.com", 2, Gender.MALE));
+        when(customerRepository.saveAllAndFlush(customers)).thenReturn(customers);
+
+        // When
+        int actual = underTest.insertCustomers(customers);
+
+        // Then
+        assertThat(actual).isEqualTo(1);
+        verify(customerOutbox).recordAll(CustomerChange.Type.INSERTED, customers);
+    }
+
+    @Test
+    void insertCustomersRetriesOneByOneSkippingTakenEmails() {
+        // Given
+        List<Customer> customers = List.of(
+                new Customer("foo", "foo@gmail.com", 2, Gender.MALE),
+                new Customer("bar", "taken@gmail.com", 3, Gender.FEMALE),
+                new Customer("baz", "baz@gmail.com", 4, Gender.MALE)
+        );
+        when(customerRepository.saveAllAndFlush(customers)).thenThrow(uniqueViolation());
+        when(customerRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            Customer customer = invocation.getArgument(0);
+            if (customer.getEmail().equals("taken@gmail.com"))
+                throw uniqueViolation();
+            return customer;
+        });
+
+        // When
+        int actual = underTest.insertCustomers(customers);
+
+        // Then
+        assertThat(actual).isEqualTo(2);
+        verify(customerOutbox).record(CustomerChange.Type.INSERTED, customers.get(0));
+        verify(customerOutbox).record(CustomerChange.Type.INSERTED, customers.get(2));
+        verify(customerOutbox, never()).record(CustomerChange.Type.INSERTED, customers.get(1));
+        // the batch and each retry run in a transaction of their own
+        verify(transactionManager, times(4)).getTransaction(any());
+    }
+
+    @Test
+    void insertCustomersDoesNotRetryOtherIntegrityViolations() {
+        // Given
+        List<Customer> customers = List.of(new Customer("foo", null, 2, Gender.MALE));
+        DataIntegrityViolationException notNullViolation = new DataIntegrityViolationException(
+                "could not execute statement",
+                new SQLException("null value in column \"email\"", "23502"));
+        when(customerRepository.saveAllAndFlush(customers)).thenThrow(notNullViolation);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.insertCustomers(customers)).isSameAs(notNullViolation);
+        verify(customerRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // Given
+        List<String> emails = List.of("foo@gmail.com", "bar@gmail.com");
 
         // When
-        underTest.insertCustomer(customer);
+        underTest.selectExistingEmails(emails);
 
         // Then
-        verify(customerRepository).save(customer);
+        verify(customerRepository).findExistingEmails(emails);
     }
 
     @Test
@@ -71,7 +270,7 @@ class CustomerJpaDataAccessServiceTest {
     @Test
     void existsPersonWithId() {
         // Given
-        int id = 1;
+        long id = 1;
 
         // When
         underTest.existsPersonWithId(id);
@@ -83,24 +282,118 @@ class CustomerJpaDataAccessServiceTest {
     @Test
     void deleteCustomerById() {
         // Given
-        int id = 1;
+        long id = 1;
+        Customer customer = new Customer(id, "foo", "foo@gmail.com", 2, Gender.MALE);
+        when(customerRepository.findById(id)).thenReturn(Optional.of(customer));
 
         // When
         underTest.deleteCustomerById(id);
 
         // Then
-        verify(customerRepository).deleteById(id);
+        verify(customerRepository).delete(customer);
+        verify(customerOutbox).record(CustomerChange.Type.DELETED, customer);
+    }
+
+    @Test
+    void updateCustomerWritesOnlyTheFieldsSetOnTheUpdateWithoutLoadingIt() {
+        // Given
+        Customer update = new Customer(1L, null, null, 3, null, 4L);
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(1);
+
+        // When
+        underTest.updateCustomer(update);
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager).createNativeQuery(sql.capture());
+        assertThat(sql.getValue())
+                .contains("UPDATE customer SET age = ?, version = version + 1 WHERE id = ? AND version = ?");
+        verify(query).setParameter(1, 3);
+        verify(query).setParameter(2, 1L);
+        verify(query).setParameter(3, 4L);
+        verify(customerRepository, never()).findById(any());
+        verify(entityManager).clear();
+    }
+
+    @Test
+    void updateCustomerWithNothingSetDoesNotTouchTheDatabase() {
+        // Given
+        Customer update = new Customer(1L, null, null, null, null, 4L);
+
+        // When
+        underTest.updateCustomer(update);
+
+        // Then
+        verifyNoInteractions(entityManager, customerRepository);
     }
 
     @Test
-    void updateCustomer() {
+    void willThrowWhenUpdateIsBasedOnStaleVersion() {
         // Given
-        Customer update = new Customer(1, "foo", "foo@gmail.com", 2, Gender.MALE);
+        Customer update = new Customer(1L, "bar", null, null, null, 4L);
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(0);
+        when(customerRepository.existsById(1L)).thenReturn(true);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(update))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    void updateOfMissingCustomerIsANoOp() {
+        // Given
+        Customer update = new Customer(1L, "bar", null, null, null, 4L);
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(0);
+        when(customerRepository.existsById(1L)).thenReturn(false);
 
         // When
         underTest.updateCustomer(update);
 
         // Then
-        verify(customerRepository).save(update);
+        verify(query).executeUpdate();
+    }
+
+    @Test
+    void willThrowWhenEmailIsTakenWhileUpdatingCustomer() {
+        // Given
+        Customer update = new Customer(1L, null, "taken@gmail.com", null, null);
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.executeUpdate()).thenThrow(new PersistenceException(
+                "could not execute statement",
+                new SQLException("duplicate key value violates unique constraint", "23505")
+        ));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(update))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("email already taken");
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        // Given
+        List<Long> ids = List.of(1L, 2L);
+
+        // When
+        underTest.selectCustomersByIds(ids);
+
+        // Then
+        verify(customerRepository).findAllById(ids);
+    }
+
+    private static DataIntegrityViolationException uniqueViolation() {
+        return new DataIntegrityViolationException(
+                "could not execute statement",
+                new SQLException("duplicate key value violates unique constraint", "23505")
+        );
     }
 }
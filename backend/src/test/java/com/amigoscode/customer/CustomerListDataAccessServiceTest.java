@@ -0,0 +1,295 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.DuplicateResourceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerListDataAccessServiceTest {
+
+    private CustomerListDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerListDataAccessService();
+    }
+
+    @Test
+    void insertCustomer() {
+        // Given
+        Customer customer = new Customer("foo", "foo@gmail.com", 20, Gender.MALE);
+
+        // When
+        Long id = underTest.insertCustomer(customer);
+
+        // Then
+        assertThat(underTest.selectCustomerById(id))
+                .hasValue(new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE));
+        assertThat(underTest.existsPersonWithEmail("foo@gmail.com")).isTrue();
+        assertThat(underTest.existsPersonWithId(id)).isTrue();
+    }
+
+    @Test
+    void willThrowWhenEmailIsTakenWhileInsertingCustomer() {
+        // Given
+        underTest.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("bar", "foo@gmail.com", 21, Gender.MALE)))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("email already taken");
+    }
+
+    @Test
+    void selectCustomersFiltersAndSorts() {
+        // Given
+        Long alice = underTest.insertCustomer(new Customer("Alice", "alice@gmail.com", 30, Gender.FEMALE));
+        Long albert = underTest.insertCustomer(new Customer("albert", "albert@gmail.com", 40, Gender.MALE));
+        Long alma = underTest.insertCustomer(new Customer("Alma", "alma@gmail.com", 35, Gender.FEMALE));
+        underTest.insertCustomer(new Customer("bob", "bob@gmail.com", 35, Gender.MALE));
+
+        // When
+        List<Customer> byName = underTest.selectCustomers(
+                new CustomerQuery("AL", null, 25, null, null, CustomerQuery.SortField.AGE, CustomerQuery.Direction.DESC));
+        List<Customer> byGenderAndAge = underTest.selectCustomers(
+                new CustomerQuery(null, null, 30, 35, Gender.FEMALE, null, null));
+
+        // Then
+        assertThat(byName).extracting(Customer::getId).containsExactly(albert, alma, alice);
+        assertThat(byGenderAndAge).extracting(Customer::getId).containsExactly(alice, alma);
+    }
+
+    @Test
+    void searchCustomersRanksBestMatchFirst() {
+        // Given
+        Long jamila = underTest.selectAllCustomers().stream()
+                .filter(c -> c.getName().equals("jamila")).findFirst().orElseThrow().getId();
+        Long jamal = underTest.insertCustomer(new Customer("Jamal", "jamal@gmail.com", 30, Gender.MALE));
+        Long benjamin = underTest.insertCustomer(new Customer("Benjamin", "ben@gmail.com", 30, Gender.MALE));
+
+        // When
+        List<Customer> actual = underTest.searchCustomers("jam", 10);
+
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(jamila, jamal, benjamin);
+    }
+
+    @Test
+    void searchCustomersFollowsUpdatesAndDeletes() {
+        // Given
+        Long id = underTest.insertCustomer(new Customer("Zora", "zora@gmail.com", 30, Gender.FEMALE));
+        Customer update = new Customer();
+        update.setId(id);
+        update.setName("Xenia");
+        update.setEmail("xenia@gmail.com");
+
+        // When
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(underTest.searchCustomers("zora", 10)).isEmpty();
+        assertThat(underTest.searchCustomers("xenia", 10)).extracting(Customer::getId).containsExactly(id);
+
+        underTest.deleteCustomerById(id);
+        assertThat(underTest.searchCustomers("xenia", 10)).isEmpty();
+    }
+
+    @Test
+    void selectCustomerPage() {
+        // Given
+        List<Long> ids = IntStream.range(0, 5)
+                .mapToObj(i -> underTest.insertCustomer(new Customer("foo", "foo" + i + "@gmail.com", 20, Gender.MALE)))
+                .toList();
+
+        // When
+        List<Customer> actual = underTest.selectCustomerPage(ids.get(1), 2);
+
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(ids.get(2), ids.get(3));
+    }
+
+    @Test
+    void updateCustomerReplacesStoredCustomer() {
+        // Given
+        Long id = underTest.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+        int count = underTest.selectAllCustomers().size();
+        Customer update = new Customer();
+        update.setId(id);
+        update.setEmail("bar@gmail.com");
+        update.setAge(30);
+
+        // When
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(underTest.selectCustomerById(id))
+                .hasValue(new Customer(id, "foo", "bar@gmail.com", 30, Gender.MALE));
+        assertThat(underTest.selectAllCustomers()).hasSize(count);
+        assertThat(underTest.existsPersonWithEmail("foo@gmail.com")).isFalse();
+        assertThat(underTest.existsPersonWithEmail("bar@gmail.com")).isTrue();
+    }
+
+    @Test
+    void updateCustomerIncrementsVersion() {
+        // Given
+        Long id = underTest.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+        Customer update = new Customer();
+        update.setId(id);
+        update.setAge(30);
+        update.setVersion(0L);
+
+        // When
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(underTest.selectCustomerVersion(id)).hasValue(1L);
+        assertThat(underTest.selectCustomerById(id).orElseThrow().getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void willThrowWhenUpdatingStaleVersion() {
+        // Given
+        Long id = underTest.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+        Customer first = new Customer();
+        first.setId(id);
+        first.setAge(30);
+        first.setVersion(0L);
+        underTest.updateCustomer(first);
+
+        Customer stale = new Customer();
+        stale.setId(id);
+        stale.setAge(40);
+        stale.setVersion(0L);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(stale))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(underTest.selectCustomerById(id).orElseThrow().getAge()).isEqualTo(30);
+    }
+
+    @Test
+    void willThrowWhenEmailIsTakenWhileUpdatingCustomer() {
+        // Given
+        Long id = underTest.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+        underTest.insertCustomer(new Customer("bar", "bar@gmail.com", 20, Gender.MALE));
+        Customer update = new Customer();
+        update.setId(id);
+        update.setEmail("bar@gmail.com");
+
+        // When
+        assertThatThrownBy(() -> underTest.updateCustomer(update))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("email already taken");
+
+        // Then
+        assertThat(underTest.selectCustomerById(id)).hasValueSatisfying(c ->
+                assertThat(c.getEmail()).isEqualTo("foo@gmail.com"));
+    }
+
+    @Test
+    void deleteCustomerByIdReleasesEmail() {
+        // Given
+        Long id = underTest.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+
+        // When
+        underTest.deleteCustomerById(id);
+
+        // Then
+        assertThat(underTest.selectCustomerById(id)).isEmpty();
+        assertThat(underTest.existsPersonWithEmail("foo@gmail.com")).isFalse();
+    }
+
+    @Test
+    void willNotExposeStoredInstances() {
+        // Given
+        Long id = underTest.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+
+        // When
+        Customer actual = underTest.selectCustomerById(id).orElseThrow();
+        actual.setName("changed");
+
+        // Then
+        assertThat(actual.getClass()).isEqualTo(Customer.class);
+        assertThat(underTest.selectCustomerById(id).map(Customer::getName)).hasValue("foo");
+        assertThat(underTest.selectAllCustomers()).allSatisfy(customer ->
+                assertThat(customer.getClass()).isEqualTo(Customer.class));
+    }
+
+    @Test
+    void pagesAcrossChunksAndSkipsDeletedIds() {
+        // Given
+        List<Customer> customers = IntStream.rangeClosed(1, 5_000)
+                .mapToObj(i -> new Customer("foo" + i, "foo" + i + "@gmail.com", 20, Gender.MALE))
+                .toList();
+        underTest.insertCustomers(customers);
+        Long last = customers.get(customers.size() - 1).getId();
+        underTest.deleteCustomerById(4_097L);
+
+        // When
+        List<Customer> page = underTest.selectCustomerPage(4_095L, 3);
+
+        // Then
+        assertThat(page).extracting(Customer::getId).containsExactly(4_096L, 4_098L, 4_099L);
+        assertThat(underTest.selectCustomerById(last)).isPresent();
+        assertThat(underTest.selectCustomerById(last + 1)).isEmpty();
+        assertThat(underTest.selectAllCustomers()).hasSize(2 + 5_000 - 1);
+    }
+
+    @Test
+    void onlyOneConcurrentInsertWinsTheSameEmail() throws Exception {
+        // Given
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // When
+        List<Future<Integer>> results;
+        try {
+            results = executor.invokeAll(IntStream.range(0, threads)
+                    .<Callable<Integer>>mapToObj(i -> () -> underTest.insertCustomers(List.of(
+                            new Customer("foo", "foo@gmail.com", 20, Gender.MALE),
+                            new Customer("foo", "foo" + i + "@gmail.com", 20, Gender.MALE))))
+                    .toList());
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        int inserted = 0;
+        for (Future<Integer> result : results)
+            inserted += result.get();
+        assertThat(inserted).isEqualTo(threads + 1);
+        assertThat(underTest.selectAllCustomers())
+                .extracting(Customer::getId)
+                .doesNotHaveDuplicates()
+                .hasSize(threads + 3);
+        Optional<Customer> winner = underTest.selectAllCustomers().stream()
+                .filter(c -> c.getEmail().equals("foo@gmail.com"))
+                .findFirst();
+        assertThat(winner).isPresent();
+    }
+
+    @Test
+    void selectCustomersByIdsSkipsMissingIds() {
+        // Given
+        Long id = underTest.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+
+        // When
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(id, 999L));
+
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(id);
+    }
+}
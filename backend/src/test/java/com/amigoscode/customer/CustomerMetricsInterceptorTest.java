@@ -0,0 +1,92 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.DuplicateResourceException;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerMetricsInterceptorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CustomerDAO customerDAO;
+    private CustomerService underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        customerDAO = proxy(new CustomerListDataAccessService(), CustomerMetricsInterceptor.forDao(() -> meterRegistry));
+        underTest = proxy(new CustomerService(customerDAO), CustomerMetricsInterceptor.forService(() -> meterRegistry));
+    }
+
+    @Test
+    void timesSuccessfulCallsOnServiceAndDao() {
+        // Given
+        Long id = customerDAO.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+
+        // When
+        underTest.getCustomer(id);
+
+        // Then
+        assertThat(meterRegistry.get(CustomerMetricsInterceptor.SERVICE_TIMER)
+                .tags("method", "getCustomer", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(CustomerMetricsInterceptor.DAO_TIMER)
+                .tags("dao", "list", "method", "selectCustomerById", "outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void tagsMissingCustomerAsNotFound() {
+        // When
+        assertThatThrownBy(() -> underTest.getCustomer(-1L))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        // Then
+        assertThat(meterRegistry.get(CustomerMetricsInterceptor.SERVICE_TIMER)
+                .tags("method", "getCustomer", "outcome", "not-found").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(CustomerMetricsInterceptor.DAO_TIMER)
+                .tags("dao", "list", "method", "selectCustomerById", "outcome", "not-found").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void tagsTakenEmailAsDuplicate() {
+        // Given
+        customerDAO.insertCustomer(new Customer("foo", "foo@gmail.com", 20, Gender.MALE));
+
+        // When
+        assertThatThrownBy(() -> underTest.addCustomer(
+                new CustomerRegistrationRequest("bar", "foo@gmail.com", 30, Gender.FEMALE)))
+                .isInstanceOf(DuplicateResourceException.class);
+
+        // Then
+        assertThat(meterRegistry.get(CustomerMetricsInterceptor.SERVICE_TIMER)
+                .tags("method", "addCustomer", "outcome", "duplicate").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(CustomerMetricsInterceptor.DAO_TIMER)
+                .tags("dao", "list", "method", "insertCustomer", "outcome", "duplicate").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void tagsRejectedRequestAsValidationError() {
+        // When
+        assertThatThrownBy(() -> underTest.searchCustomers("ab", 10))
+                .isInstanceOf(RequestValidationException.class);
+
+        // Then
+        assertThat(meterRegistry.get(CustomerMetricsInterceptor.SERVICE_TIMER)
+                .tags("method", "searchCustomers", "outcome", "validation-error").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find(CustomerMetricsInterceptor.DAO_TIMER).tag("method", "searchCustomers").timer())
+                .isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, CustomerMetricsInterceptor interceptor) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        return (T) factory.getProxy();
+    }
+}
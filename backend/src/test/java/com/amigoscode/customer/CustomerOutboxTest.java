@@ -0,0 +1,96 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerOutboxTest extends AbstractTestcontainers {
+
+    private CustomerOutbox underTest;
+    private CustomerJDBCDataAccessService customerDAO;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerOutbox(getJdbcTemplate(), Duration.ofDays(7), Duration.ofHours(1));
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
+        customerDAO = new CustomerJDBCDataAccessService(
+                jdbcTemplate, new CustomerRowMapper(), new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    }
+
+    @Test
+    void recordsInsertUpdateAndDeleteInOrder() {
+        // Given
+        List<CustomerChange> before = drain(null);
+        String since = before.isEmpty() ? null : before.get(before.size() - 1).cursor();
+
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        Long id = customerDAO.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE));
+        Customer update = new Customer();
+        update.setId(id);
+        update.setAge(21);
+        customerDAO.updateCustomer(update);
+        customerDAO.deleteCustomerById(id);
+
+        // When
+        List<CustomerChange> actual = underTest.selectChangesAfter(since, 10);
+
+        // Then
+        assertThat(actual).extracting(CustomerChange::type).containsExactly(
+                CustomerChange.Type.INSERTED, CustomerChange.Type.UPDATED, CustomerChange.Type.DELETED);
+        assertThat(actual).extracting(CustomerChange::customerId).containsOnly(id);
+        assertThat(actual.get(1).customer().getAge()).isEqualTo(21);
+        assertThat(actual.get(1).customer().getVersion()).isEqualTo(1L);
+        assertThat(actual.get(2).customer()).isNull();
+    }
+
+    @Test
+    void insertOfTakenEmailRecordsNothing() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        customerDAO.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE));
+        List<CustomerChange> before = drain(null);
+        String since = before.get(before.size() - 1).cursor();
+
+        // When
+        customerDAO.insertCustomers(List.of(new Customer(FAKER.name().fullName(), email, 30, Gender.FEMALE)));
+
+        // Then
+        assertThat(underTest.selectChangesAfter(since, 10)).isEmpty();
+    }
+
+    @Test
+    void pruneChangesBeforeCutoff() {
+        // Given
+        customerDAO.insertCustomer(new Customer(
+                FAKER.name().fullName(), FAKER.internet().emailAddress() + "-" + UUID.randomUUID(), 20, Gender.MALE));
+
+        // When
+        int pruned = underTest.pruneChangesBefore(Instant.now().plusSeconds(60));
+
+        // Then
+        assertThat(pruned).isPositive();
+        assertThat(underTest.selectChangesAfter(null, 10)).isEmpty();
+    }
+
+    private List<CustomerChange> drain(String since) {
+        List<CustomerChange> all = new ArrayList<>();
+        List<CustomerChange> page;
+        do {
+            page = underTest.selectChangesAfter(since, 1000);
+            all.addAll(page);
+            if (!page.isEmpty())
+                since = page.get(page.size() - 1).cursor();
+        } while (page.size() == 1000);
+        return all;
+    }
+}
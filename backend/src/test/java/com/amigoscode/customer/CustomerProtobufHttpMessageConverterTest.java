@@ -0,0 +1,149 @@
+package com.amigoscode.customer;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UnknownFieldSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import static com.amigoscode.customer.CustomerProtobufHttpMessageConverter.APPLICATION_PROTOBUF;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerProtobufHttpMessageConverterTest {
+
+    private static final Type CUSTOMER_LIST = new ParameterizedTypeReference<List<Customer>>() {
+    }.getType();
+
+    private final CustomerProtobufHttpMessageConverter underTest = new CustomerProtobufHttpMessageConverter();
+
+    @Test
+    void writesCustomersOnlyAsProtobuf() {
+        assertThat(underTest.canWrite(Customer.class, Customer.class, APPLICATION_PROTOBUF)).isTrue();
+        assertThat(underTest.canWrite(CUSTOMER_LIST, List.class, APPLICATION_PROTOBUF)).isTrue();
+        assertThat(underTest.canWrite(Customer.class, Customer.class, null)).isTrue();
+
+        assertThat(underTest.canWrite(String.class, String.class, APPLICATION_PROTOBUF)).isFalse();
+        assertThat(underTest.canWrite(CustomerPage.class, CustomerPage.class, APPLICATION_PROTOBUF)).isFalse();
+        assertThat(underTest.canWrite(Customer.class, Customer.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(underTest.canRead(CUSTOMER_LIST, null, APPLICATION_PROTOBUF)).isFalse();
+    }
+
+    @Test
+    void writesCustomerSubclasses() throws IOException {
+        // Given
+        Customer customer = new Customer(7L, "Alex", "alex@gmail.com", 21, Gender.FEMALE) {
+        };
+        Type subclassList = new ParameterizedTypeReference<List<? extends Customer>>() {
+        }.getType();
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        // When
+        boolean canWrite = underTest.canWrite(customer.getClass(), customer.getClass(), APPLICATION_PROTOBUF);
+        underTest.write(customer, customer.getClass(), APPLICATION_PROTOBUF, output);
+
+        // Then
+        assertThat(canWrite).isTrue();
+        assertThat(underTest.canWrite(subclassList, List.class, APPLICATION_PROTOBUF)).isTrue();
+        assertThat(read(output.getBodyAsBytes(), Customer.class))
+                .isEqualTo(new Customer(7L, "Alex", "alex@gmail.com", 21, Gender.FEMALE));
+    }
+
+    @Test
+    void writesListAsCustomerListMessage() throws IOException {
+        // Given
+        List<Customer> customers = List.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21, Gender.MALE),
+                new Customer(300L, "Jamila", "jamila@gmail.com", 19, Gender.FEMALE)
+        );
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        // When
+        underTest.write(customers, CUSTOMER_LIST, APPLICATION_PROTOBUF, output);
+
+        // Then
+        assertThat(output.getHeaders().getContentType()).isEqualTo(APPLICATION_PROTOBUF);
+        UnknownFieldSet list = UnknownFieldSet.parseFrom(output.getBodyAsBytes());
+        List<Customer> actual = list.getField(1).getLengthDelimitedList().stream()
+                .map(customer -> read(customer.toByteArray(), Customer.class))
+                .toList();
+        assertThat(actual).isEqualTo(customers);
+    }
+
+    @Test
+    void writesTheFieldNumbersOfTheSchema() throws IOException {
+        // Given
+        Customer customer = new Customer(7L, "Alex", "alex@gmail.com", 21, Gender.FEMALE);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        // When
+        underTest.write(customer, Customer.class, APPLICATION_PROTOBUF, output);
+
+        // Then
+        Map<Integer, UnknownFieldSet.Field> fields = UnknownFieldSet.parseFrom(output.getBodyAsBytes()).asMap();
+        assertThat(fields.get(1).getVarintList()).containsExactly(7L);
+        assertThat(fields.get(2).getLengthDelimitedList().get(0).toStringUtf8()).isEqualTo("Alex");
+        assertThat(fields.get(3).getLengthDelimitedList().get(0).toStringUtf8()).isEqualTo("alex@gmail.com");
+        assertThat(fields.get(4).getVarintList()).containsExactly(21L);
+        assertThat(fields.get(5).getVarintList()).containsExactly(2L);
+    }
+
+    @Test
+    void readsRequestsLeavingAbsentFieldsNull() throws IOException {
+        // Given
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        output.writeString(1, "Alex");
+        output.writeInt32(3, 21);
+        output.writeString(15, "from a newer schema");
+        output.flush();
+
+        // When
+        CustomerUpdateRequest actual = read(bytes.toByteArray(), CustomerUpdateRequest.class);
+
+        // Then
+        assertThat(actual).isEqualTo(new CustomerUpdateRequest("Alex", null, 21));
+    }
+
+    @Test
+    void registrationRequestRoundTrips() throws IOException {
+        // Given
+        CustomerRegistrationRequest request =
+                new CustomerRegistrationRequest("Alex", "alex@gmail.com", 21, Gender.MALE);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        // When
+        underTest.write(request, CustomerRegistrationRequest.class, APPLICATION_PROTOBUF, output);
+
+        // Then
+        assertThat(read(output.getBodyAsBytes(), CustomerRegistrationRequest.class)).isEqualTo(request);
+    }
+
+    @Test
+    void rejectsMalformedBody() {
+        // Given a length prefix running past the end of the body
+        byte[] body = {10, 100, 'A'};
+
+        // When
+        // Then
+        assertThatThrownBy(() -> read(body, CustomerUpdateRequest.class))
+                .isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    private <T> T read(byte[] body, Class<T> type) {
+        try {
+            return type.cast(underTest.read(type, null, new MockHttpInputMessage(body)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
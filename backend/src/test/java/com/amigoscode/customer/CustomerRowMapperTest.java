@@ -2,11 +2,18 @@ package com.amigoscode.customer;
 
 import org.junit.jupiter.api.Test;
 
+import org.springframework.jdbc.core.RowCallbackHandler;
+
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class CustomerRowMapperTest {
@@ -17,7 +24,7 @@ class CustomerRowMapperTest {
         CustomerRowMapper customerRowMapper = new CustomerRowMapper();
         ResultSet resultSet = mock(ResultSet.class);
 
-        when(resultSet.getInt("id")).thenReturn(1);
+        when(resultSet.getLong("id")).thenReturn(1L);
         when(resultSet.getString("name")).thenReturn("foo");
         when(resultSet.getString("email")).thenReturn("foo@gmail.com");
         when(resultSet.getInt("age")).thenReturn(20);
@@ -27,7 +34,64 @@ class CustomerRowMapperTest {
         Customer actual = customerRowMapper.mapRow(resultSet, 1);
 
         // Then
-        Customer expected = new Customer(1, "foo", "foo@gmail.com", 20, Gender.MALE);
+        Customer expected = new Customer(1L, "foo", "foo@gmail.com", 20, Gender.MALE);
         assertThat(actual).isEqualTo(expected);
     }
+
+    @Test
+    void listExtractorResolvesColumnsOnceAndMapsEveryRow() throws SQLException {
+        // Given
+        CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+        ResultSet resultSet = mock(ResultSet.class);
+
+        when(resultSet.findColumn("id")).thenReturn(1);
+        when(resultSet.findColumn("name")).thenReturn(2);
+        when(resultSet.findColumn("email")).thenReturn(3);
+        when(resultSet.findColumn("age")).thenReturn(4);
+        when(resultSet.findColumn("gender")).thenReturn(5);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getLong(1)).thenReturn(1L, 2L);
+        when(resultSet.getString(2)).thenReturn("foo", "bar");
+        when(resultSet.getString(3)).thenReturn("foo@gmail.com", "bar@gmail.com");
+        when(resultSet.getInt(4)).thenReturn(20, 30);
+        when(resultSet.getString(5)).thenReturn("MALE", "FEMALE");
+
+        // When
+        List<Customer> actual = customerRowMapper.listExtractor().extractData(resultSet);
+
+        // Then
+        assertThat(actual).containsExactly(
+                new Customer(1L, "foo", "foo@gmail.com", 20, Gender.MALE),
+                new Customer(2L, "bar", "bar@gmail.com", 30, Gender.FEMALE)
+        );
+        verify(resultSet, times(1)).findColumn("id");
+    }
+
+    @Test
+    void rowHandlerResolvesColumnsOnFirstRowOnly() throws SQLException {
+        // Given
+        CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.findColumn("gender")).thenReturn(5);
+        when(resultSet.getString(5)).thenReturn("FEMALE");
+        List<Customer> actual = new ArrayList<>();
+
+        // When
+        RowCallbackHandler handler = customerRowMapper.rowHandler(actual::add);
+        handler.processRow(resultSet);
+        handler.processRow(resultSet);
+
+        // Then
+        assertThat(actual).hasSize(2);
+        assertThat(actual).extracting(Customer::getGender).containsOnly(Gender.FEMALE);
+        verify(resultSet, times(1)).findColumn("gender");
+    }
+
+    @Test
+    void unknownGenderIsRejected() {
+        // When / Then
+        assertThatThrownBy(() -> CustomerRowMapper.gender("OTHER"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("unknown gender [OTHER]");
+    }
 }
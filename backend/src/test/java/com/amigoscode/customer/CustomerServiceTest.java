@@ -1,16 +1,30 @@
 package com.amigoscode.customer;
 
+import com.amigoscode.SingleFlight;
+import com.amigoscode.config.ReplicaRoutingDataSource;
 import com.amigoscode.exception.DuplicateResourceException;
+import com.amigoscode.exception.PreconditionFailedException;
 import com.amigoscode.exception.RequestValidationException;
 import com.amigoscode.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -23,6 +37,8 @@ class CustomerServiceTest {
 
     @Mock
     private CustomerDAO customerDAO;
+    @Captor
+    private ArgumentCaptor<List<Customer>> customersCaptor;
 
     @BeforeEach
     void setUp() {
@@ -38,10 +54,106 @@ class CustomerServiceTest {
         verify(customerDAO).selectAllCustomers();
     }
 
+    @Test
+    void canGetCustomersMatchingQuery() {
+        // Given
+        CustomerQuery query = new CustomerQuery("al", null, 18, 30, Gender.MALE, CustomerQuery.SortField.AGE, null);
+
+        // When
+        underTest.getCustomers(query);
+
+        // Then
+        verify(customerDAO).selectCustomers(query);
+    }
+
+    @Test
+    void willThrowWhenMinAgeIsGreaterThanMaxAge() {
+        // Given
+        CustomerQuery query = new CustomerQuery(null, null, 30, 18, null, null, null);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomers(query))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("minAge must not be greater than maxAge");
+        verifyNoInteractions(customerDAO);
+    }
+
+    @Test
+    void canSearchCustomers() {
+        // When
+        underTest.searchCustomers("  jam ", 10);
+
+        // Then
+        verify(customerDAO).searchCustomers("jam", 10);
+    }
+
+    @Test
+    void willThrowWhenSearchQueryIsTooShort() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.searchCustomers(" ja ", 10))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("search query must be at least 3 characters");
+        verifyNoInteractions(customerDAO);
+    }
+
+    @Test
+    void willThrowWhenSearchLimitIsOutOfBounds() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.searchCustomers("jam", CustomerService.MAX_SEARCH_LIMIT + 1))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("search limit must be between 1 and 100");
+        verifyNoInteractions(customerDAO);
+    }
+
+    @Test
+    void canGetCustomerPage() {
+        // Given
+        List<Customer> customers = List.of(
+                new Customer(3L, "foo", "foo@gmail.com", 20, Gender.MALE),
+                new Customer(4L, "bar", "bar@gmail.com", 21, Gender.FEMALE)
+        );
+        when(customerDAO.selectCustomerPage(2L, 2)).thenReturn(customers);
+
+        // When
+        CustomerPage actual = underTest.getCustomerPage(2L, 2);
+
+        // Then
+        assertThat(actual.customers()).isEqualTo(customers);
+        assertThat(actual.nextCursor()).isEqualTo(4);
+    }
+
+    @Test
+    void willReturnNoCursorOnLastPage() {
+        // Given
+        List<Customer> customers = List.of(new Customer(3L, "foo", "foo@gmail.com", 20, Gender.MALE));
+        when(customerDAO.selectCustomerPage(0L, 2)).thenReturn(customers);
+
+        // When
+        CustomerPage actual = underTest.getCustomerPage(null, 2);
+
+        // Then
+        assertThat(actual.customers()).isEqualTo(customers);
+        assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void willThrowWhenPageSizeIsOutOfBounds() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomerPage(null, CustomerService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("page size must be between 1 and %s".formatted(CustomerService.MAX_PAGE_SIZE));
+
+        verify(customerDAO, never()).selectCustomerPage(any(), anyInt());
+    }
+
     @Test
     void catGetCustomer() {
         // Given
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
         when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
 
@@ -52,10 +164,38 @@ class CustomerServiceTest {
         assertThat(actual).isEqualTo(customer);
     }
 
+    @Test
+    void callerPinnedToPrimaryDoesNotShareAnUnpinnedLookup() throws Exception {
+        // Given
+        long id = 1;
+        Customer replicaCopy = new Customer(id, "alex", "alex@gmail.com", 19, Gender.MALE);
+        Customer primaryCopy = new Customer(id, "alexander", "alex@gmail.com", 19, Gender.MALE);
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerDAO.selectCustomerById(id)).thenAnswer(invocation -> {
+            if (ReplicaRoutingDataSource.isPinnedToPrimary())
+                return Optional.of(primaryCopy);
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(replicaCopy);
+        });
+        CompletableFuture<Customer> unpinned = CompletableFuture.supplyAsync(() -> underTest.getCustomer(id));
+        verify(customerDAO, timeout(5000)).selectCustomerById(id);
+
+        // When
+        Customer actual;
+        try (ReplicaRoutingDataSource.Pin ignored = ReplicaRoutingDataSource.pinToPrimary()) {
+            actual = underTest.getCustomer(id);
+        }
+        release.countDown();
+
+        // Then
+        assertThat(actual).isEqualTo(primaryCopy);
+        assertThat(unpinned.get(5, TimeUnit.SECONDS)).isEqualTo(replicaCopy);
+    }
+
     @Test
     void willThrowWhenCustomerReturnEmptyOptional() {
         // Given
-        int id = 1;
+        long id = 1;
         when(customerDAO.selectCustomerById(id)).thenReturn(Optional.empty());
 
         // When
@@ -69,7 +209,6 @@ class CustomerServiceTest {
     void addCustomer() {
         // Given
         String email = "foo@gmail.com";
-        when(customerDAO.existsPersonWithEmail(email)).thenReturn(false);
         CustomerRegistrationRequest request = new CustomerRegistrationRequest("foo", email, 20, Gender.MALE);
 
         // When
@@ -88,26 +227,126 @@ class CustomerServiceTest {
         assertThat(captuerdCustomer.getAge()).isEqualTo(request.age());
     }
 
+    @Test
+    void registrationWaitingOnAnInvalidOneWithTheSameEmailIsStillInserted() throws Exception {
+        // Given
+        String email = "foo@gmail.com";
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        underTest = new CustomerService(customerDAO, null, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerDAO.insertCustomer(any())).thenAnswer(invocation -> {
+            Customer customer = invocation.getArgument(0);
+            if (customer.getName() == null) {
+                release.await(5, TimeUnit.SECONDS);
+                throw new DataIntegrityViolationException("null value in column \"name\"");
+            }
+            return 2L;
+        });
+        CompletableFuture<Void> invalid = CompletableFuture.runAsync(() ->
+                underTest.addCustomer(new CustomerRegistrationRequest(null, email, 20, Gender.MALE)));
+        verify(customerDAO, timeout(5000)).insertCustomer(any());
+
+        // When
+        CompletableFuture<Void> valid = CompletableFuture.runAsync(() ->
+                underTest.addCustomer(new CustomerRegistrationRequest("foo", email, 20, Gender.MALE)));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(SingleFlight.METER).tags("operation", "addCustomer", "result", "shared")
+                .counter().count() < 1 && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        release.countDown();
+
+        // Then
+        valid.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> invalid.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+        verify(customerDAO, times(2)).insertCustomer(any());
+    }
+
     @Test
     void willThrowWhenEmailExistsWhileAddingACustomer() {
         // Given
         String email = "foo@gmail.com";
-        when(customerDAO.existsPersonWithEmail(email)).thenReturn(true);
+        when(customerDAO.insertCustomer(any())).thenThrow(new DuplicateResourceException("email already taken"));
         CustomerRegistrationRequest request = new CustomerRegistrationRequest("foo", email, 20, Gender.MALE);
 
         // When
+        // Then
         assertThatThrownBy(() -> underTest.addCustomer(request))
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage("email already taken");
 
+        verify(customerDAO, never()).existsPersonWithEmail(any());
+    }
+
+    @Test
+    void canImportCustomers() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("foo", "foo@gmail.com", 20, Gender.MALE),
+                new CustomerRegistrationRequest("bar", "bar@gmail.com", 21, Gender.FEMALE)
+        );
+        when(customerDAO.selectExistingEmails(List.of("foo@gmail.com", "bar@gmail.com"))).thenReturn(Set.of());
+        when(customerDAO.insertCustomers(anyList())).thenReturn(2);
+
+        // When
+        CustomerImportResult actual = underTest.importCustomers(requests.iterator());
+
+        // Then
+        assertThat(actual.accepted()).isEqualTo(2);
+        assertThat(actual.rejected()).isZero();
+        assertThat(actual.chunks()).containsExactly(new CustomerImportResult.ChunkResult(0, 2, 0));
+    }
+
+    @Test
+    void willRejectDuplicateAndIncompleteRequestsWhileImportingCustomers() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("foo", "foo@gmail.com", 20, Gender.MALE),
+                new CustomerRegistrationRequest("foo", "foo@gmail.com", 20, Gender.MALE),
+                new CustomerRegistrationRequest("taken", "taken@gmail.com", 30, Gender.MALE),
+                new CustomerRegistrationRequest("bar", "bar@gmail.com", null, Gender.FEMALE)
+        );
+        when(customerDAO.selectExistingEmails(anyList())).thenReturn(Set.of("taken@gmail.com"));
+        when(customerDAO.insertCustomers(anyList())).thenReturn(1);
+
+        // When
+        CustomerImportResult actual = underTest.importCustomers(requests.iterator());
+
+        // Then
+        verify(customerDAO).insertCustomers(customersCaptor.capture());
+        assertThat(customersCaptor.getValue())
+                .extracting(Customer::getEmail)
+                .containsExactly("foo@gmail.com");
+
+        assertThat(actual.accepted()).isEqualTo(1);
+        assertThat(actual.rejected()).isEqualTo(3);
+    }
+
+    @Test
+    void willImportCustomersInChunks() {
+        // Given
+        List<CustomerRegistrationRequest> requests = IntStream
+                .range(0, CustomerService.IMPORT_CHUNK_SIZE + 1)
+                .mapToObj(i -> new CustomerRegistrationRequest("foo", "foo" + i + "@gmail.com", 20, Gender.MALE))
+                .toList();
+        when(customerDAO.selectExistingEmails(anyList())).thenReturn(Set.of());
+        when(customerDAO.insertCustomers(anyList())).thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+
+        // When
+        CustomerImportResult actual = underTest.importCustomers(requests.iterator());
+
         // Then
-        verify(customerDAO, never()).insertCustomer(any());
+        assertThat(actual.chunks()).containsExactly(
+                new CustomerImportResult.ChunkResult(0, CustomerService.IMPORT_CHUNK_SIZE, 0),
+                new CustomerImportResult.ChunkResult(1, 1, 0)
+        );
+        assertThat(actual.accepted()).isEqualTo(requests.size());
     }
 
     @Test
     void deleteCustomerById() {
         // Given
-        int id = 1;
+        long id = 1;
         when(customerDAO.existsPersonWithId(id)).thenReturn(true);
 
         // When
@@ -120,7 +359,7 @@ class CustomerServiceTest {
     @Test
     void willThrowWhenDeleteCustomerByIdNotExists() {
         // Given
-        int id = 1;
+        long id = 1;
         when(customerDAO.existsPersonWithId(id)).thenReturn(false);
 
         // When
@@ -133,14 +372,74 @@ class CustomerServiceTest {
 
     }
 
+    @Test
+    void canGetCustomerVersion() {
+        // Given
+        when(customerDAO.selectCustomerVersion(1L)).thenReturn(Optional.of(3L));
+
+        // When
+        Optional<Long> actual = underTest.getCustomerVersion(1L);
+
+        // Then
+        assertThat(actual).hasValue(3L);
+    }
+
+    @Test
+    void willThrowWhenUpdateIsBasedOnStaleVersion() {
+        // Given
+        long id = 1;
+        Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE, 4L);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        CustomerUpdateRequest request = new CustomerUpdateRequest("update", null, null);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request, 3L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("customer with id [%s] has been modified".formatted(id));
+        verify(customerDAO, never()).updateCustomer(any());
+    }
+
+    @Test
+    void canUpdateWhenExpectedVersionIsCurrent() {
+        // Given
+        long id = 1;
+        Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE, 4L);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        CustomerUpdateRequest request = new CustomerUpdateRequest("update", null, null);
+
+        // When
+        underTest.updateCustomer(id, request, 4L);
+
+        // Then
+        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).updateCustomer(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue().getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void willThrowWhenCustomerIsUpdatedConcurrently() {
+        // Given
+        long id = 1;
+        Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE, 4L);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        doThrow(new OptimisticLockingFailureException("stale")).when(customerDAO).updateCustomer(any());
+        CustomerUpdateRequest request = new CustomerUpdateRequest("update", null, null);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("customer with id [%s] has been modified".formatted(id));
+    }
+
     @Test
     void canUpdateAllCustomersProperties() {
         // Given
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
         when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
         CustomerUpdateRequest request = new CustomerUpdateRequest("update", "update@gmail.com", 30);
-        when(customerDAO.existsPersonWithEmail(request.email())).thenReturn(false);
 
         // When
         underTest.updateCustomer(id, request);
@@ -159,7 +458,7 @@ class CustomerServiceTest {
     @Test
     void canUpdateOnlyCustomerName() {
         // Given
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
         when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
         CustomerUpdateRequest request = new CustomerUpdateRequest("update", null, null);
@@ -174,19 +473,19 @@ class CustomerServiceTest {
 
         assertThat(capturedCustomer.getId()).isEqualTo(id);
         assertThat(capturedCustomer.getName()).isEqualTo("update");
-        assertThat(capturedCustomer.getEmail()).isEqualTo("foo@gmail.com");
-        assertThat(capturedCustomer.getAge()).isEqualTo(20);
+        assertThat(capturedCustomer.getEmail()).isNull();
+        assertThat(capturedCustomer.getAge()).isNull();
+        assertThat(capturedCustomer.getGender()).isNull();
     }
 
     @Test
     void canUpdateOnlyCustomerEmail() {
         // Given
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
         when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
         String newEmail = "update@gmail.com";
         CustomerUpdateRequest request = new CustomerUpdateRequest(null, newEmail, null);
-        when(customerDAO.existsPersonWithEmail(newEmail)).thenReturn(false);
 
         // When
         underTest.updateCustomer(id, request);
@@ -197,15 +496,16 @@ class CustomerServiceTest {
         Customer capturedCustomer = argumentCaptor.getValue();
 
         assertThat(capturedCustomer.getId()).isEqualTo(id);
-        assertThat(capturedCustomer.getName()).isEqualTo("foo");
+        assertThat(capturedCustomer.getName()).isNull();
         assertThat(capturedCustomer.getEmail()).isEqualTo(newEmail);
-        assertThat(capturedCustomer.getAge()).isEqualTo(20);
+        assertThat(capturedCustomer.getAge()).isNull();
+        assertThat(capturedCustomer.getGender()).isNull();
     }
 
     @Test
     void canUpdateOnlyCustomerAge() {
         // Given
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
         when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
         CustomerUpdateRequest request = new CustomerUpdateRequest(null, null, 30);
@@ -219,16 +519,37 @@ class CustomerServiceTest {
         Customer capturedCustomer = argumentCaptor.getValue();
 
         assertThat(capturedCustomer.getId()).isEqualTo(id);
-        assertThat(capturedCustomer.getName()).isEqualTo("foo");
-        assertThat(capturedCustomer.getEmail()).isEqualTo("foo@gmail.com");
+        assertThat(capturedCustomer.getName()).isNull();
+        assertThat(capturedCustomer.getEmail()).isNull();
         assertThat(capturedCustomer.getAge()).isEqualTo(30);
+        assertThat(capturedCustomer.getGender()).isNull();
+    }
+
+    @Test
+    void willSendOnlyFieldsThatDifferFromTheStoredCustomer() {
+        // Given
+        long id = 1;
+        Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE, 4L);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        CustomerUpdateRequest request = new CustomerUpdateRequest("foo", "foo@gmail.com", 30);
+
+        // When
+        underTest.updateCustomer(id, request);
+
+        // Then
+        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).updateCustomer(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue())
+                .usingRecursiveComparison()
+                .isEqualTo(new Customer(id, null, null, 30, null, 4L));
+        assertThat(customer.getAge()).as("the stored customer is left alone").isEqualTo(20);
     }
 
 
     @Test
     void willThrowWhenUpdateCustomerHasNoChanges() {
         // Given
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
         when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
         CustomerUpdateRequest request = new CustomerUpdateRequest(
@@ -246,18 +567,89 @@ class CustomerServiceTest {
     @Test
     void willThrowWhenUpdateCustomerEmailExists() {
         // Given
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
         when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
         String email = "exists@gmail.com";
-        when(customerDAO.existsPersonWithEmail(email)).thenReturn(true);
+        doThrow(new DuplicateResourceException("email already taken")).when(customerDAO).updateCustomer(any());
         CustomerUpdateRequest request = new CustomerUpdateRequest(null, email, null);
 
         // When
+        // Then
         assertThatThrownBy(() -> underTest.updateCustomer(id, request))
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage("email already taken");
+
+        verify(customerDAO, never()).existsPersonWithEmail(any());
+    }
+
+    @Test
+    void queuesNameUpdatesWhenWriteBehindIsEnabled() {
+        // Given
+        CustomerWriteBehind writeBehind = mock(CustomerWriteBehind.class);
+        underTest = new CustomerService(customerDAO, writeBehind, new SimpleMeterRegistry());
+        long id = 1;
+        Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(writeBehind.withPendingUpdate(customer)).thenReturn(customer);
+        CustomerUpdateRequest request = new CustomerUpdateRequest("update", null, null);
+
+        // When
+        underTest.updateCustomer(id, request);
+
         // Then
+        verify(writeBehind).enqueue(id, request);
         verify(customerDAO, never()).updateCustomer(any());
     }
+
+    @Test
+    void writesEmailUpdatesAfterFlushingPendingOnes() {
+        // Given
+        CustomerWriteBehind writeBehind = mock(CustomerWriteBehind.class);
+        underTest = new CustomerService(customerDAO, writeBehind, new SimpleMeterRegistry());
+        long id = 1;
+        Customer customer = new Customer(id, "foo", "foo@gmail.com", 20, Gender.MALE);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(writeBehind.withPendingUpdate(customer)).thenReturn(customer);
+        when(writeBehind.isPending(id)).thenReturn(true);
+        CustomerUpdateRequest request = new CustomerUpdateRequest(null, "update@gmail.com", null);
+
+        // When
+        underTest.updateCustomer(id, request);
+
+        // Then
+        var inOrder = inOrder(writeBehind, customerDAO);
+        inOrder.verify(writeBehind).flush();
+        inOrder.verify(customerDAO).updateCustomer(new Customer(id, null, "update@gmail.com", null, null));
+        verify(writeBehind, never()).enqueue(any(), any());
+    }
+
+    @Test
+    void getCustomersByIdsKeepsRequestedOrderAndListsMissingIds() {
+        // Given
+        Customer first = new Customer(1L, "foo", "foo@gmail.com", 20, Gender.MALE);
+        Customer third = new Customer(3L, "bar", "bar@gmail.com", 30, Gender.FEMALE);
+        when(customerDAO.selectCustomersByIds(Set.of(3L, 2L, 1L))).thenReturn(List.of(first, third));
+
+        // When
+        CustomerLookupResult actual = underTest.getCustomersByIds(List.of(3L, 2L, 1L, 3L));
+
+        // Then
+        assertThat(actual.customers()).containsExactly(third, first);
+        assertThat(actual.missingIds()).containsExactly(2L);
+    }
+
+    @Test
+    void willThrowWhenTooManyIdsAreRequested() {
+        // Given
+        List<Long> ids = LongStream.rangeClosed(1, CustomerService.MAX_LOOKUP_SIZE + 1).boxed().toList();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomersByIds(ids))
+                .isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> underTest.getCustomersByIds(List.of()))
+                .isInstanceOf(RequestValidationException.class);
+        verifyNoInteractions(customerDAO);
+    }
 }
@@ -0,0 +1,186 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerWriteBehindTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private CustomerDAO customerDAO;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final List<CustomerWriteBehind> started = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (CustomerWriteBehind writeBehind : started)
+            writeBehind.shutdown();
+    }
+
+    @Test
+    void coalescesUpdatesOfACustomerIntoOneWrite() throws Exception {
+        // Given
+        CustomerWriteBehind underTest = start();
+        when(customerDAO.selectCustomerById(1L)).thenReturn(Optional.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 19, Gender.MALE, 0L)));
+
+        // When
+        underTest.enqueue(1L, new CustomerUpdateRequest("Alexander", null, null));
+        underTest.enqueue(1L, new CustomerUpdateRequest(null, null, 20));
+        underTest.enqueue(1L, new CustomerUpdateRequest("Alexandro", null, null));
+        underTest.flush();
+
+        // Then
+        ArgumentCaptor<Customer> captor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).updateCustomer(captor.capture());
+        assertThat(captor.getValue().getName()).isEqualTo("Alexandro");
+        assertThat(captor.getValue().getAge()).isEqualTo(20);
+        assertThat(captor.getValue().getEmail()).isNull();
+        assertThat(captor.getValue().getGender()).isNull();
+        assertThat(underTest.isPending(1L)).isFalse();
+    }
+
+    @Test
+    void appliesPendingUpdatesToACopy() throws Exception {
+        // Given
+        CustomerWriteBehind underTest = start();
+        Customer stored = new Customer(1L, "Alex", "alex@gmail.com", 19, Gender.MALE, 0L);
+        underTest.enqueue(1L, new CustomerUpdateRequest("Alexander", null, null));
+
+        // When
+        Customer actual = underTest.withPendingUpdate(stored);
+
+        // Then
+        assertThat(actual.getName()).isEqualTo("Alexander");
+        assertThat(actual.getAge()).isEqualTo(19);
+        assertThat(stored.getName()).isEqualTo("Alex");
+        assertThat(actual.getVersion()).as("the copy matches no stored version").isNull();
+    }
+
+    @Test
+    void recoversUnwrittenUpdatesFromTheJournal() throws Exception {
+        // Given
+        start().enqueue(1L, new CustomerUpdateRequest("Alexander", null, null));
+        when(customerDAO.selectCustomerById(1L)).thenReturn(Optional.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 19, Gender.MALE, 0L)));
+
+        // When
+        // a second instance on the same journal, as after a crash of the first
+        CustomerWriteBehind underTest = start();
+        underTest.flush();
+
+        // Then
+        ArgumentCaptor<Customer> captor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).updateCustomer(captor.capture());
+        assertThat(captor.getValue().getName()).isEqualTo("Alexander");
+    }
+
+    @Test
+    void forgetsWrittenUpdates() throws Exception {
+        // Given
+        CustomerWriteBehind first = start();
+        when(customerDAO.selectCustomerById(1L)).thenReturn(Optional.empty());
+        first.enqueue(1L, new CustomerUpdateRequest("Alexander", null, null));
+        first.flush();
+
+        // When
+        CustomerWriteBehind underTest = start();
+
+        // Then
+        assertThat(underTest.isPending(1L)).isFalse();
+        verify(customerDAO, never()).updateCustomer(any());
+    }
+
+    @Test
+    void keepsWrittenUpdatesPendingUntilTheirSegmentsAreDeleted() throws Exception {
+        // Given
+        CustomerWriteBehind underTest = start(1);
+        when(customerDAO.selectCustomerById(any())).thenAnswer(invocation -> Optional.of(
+                new Customer(invocation.getArgument(0), "Alex", "alex@gmail.com", 19, Gender.MALE, 0L)));
+        List<Boolean> othersPendingWhileWriting = new ArrayList<>();
+        doAnswer(invocation -> {
+            Long written = invocation.<Customer>getArgument(0).getId();
+            othersPendingWhileWriting.add(underTest.isPending(written == 1L ? 2L : 1L));
+            return null;
+        }).when(customerDAO).updateCustomer(any());
+        underTest.enqueue(1L, new CustomerUpdateRequest("Alexander", null, null));
+        underTest.enqueue(2L, new CustomerUpdateRequest("Alexandra", null, null));
+
+        // When
+        underTest.flush();
+
+        // Then
+        // one batch per customer, the first batch must still be pending while the second is written
+        assertThat(othersPendingWhileWriting).containsExactly(true, true);
+        assertThat(underTest.isPending(1L)).isFalse();
+        assertThat(underTest.isPending(2L)).isFalse();
+    }
+
+    @Test
+    void journalsEveryUpdateOfConcurrentWriters() throws Exception {
+        // Given
+        CustomerWriteBehind first = start();
+        int writers = 8;
+        int updatesPerWriter = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> done = new ArrayList<>();
+
+        // When
+        for (int writer = 0; writer < writers; writer++) {
+            long firstId = (long) writer * updatesPerWriter;
+            done.add(executor.submit(() -> {
+                for (long id = firstId; id < firstId + updatesPerWriter; id++)
+                    first.enqueue(id, new CustomerUpdateRequest("Alex " + id, null, null));
+            }));
+        }
+        for (Future<?> writer : done)
+            writer.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Then
+        // a second instance on the same journal, as after a crash of the first
+        CustomerWriteBehind underTest = start();
+        for (long id = 0; id < (long) writers * updatesPerWriter; id++)
+            assertThat(underTest.isPending(id)).as("customer %s", id).isTrue();
+    }
+
+    private CustomerWriteBehind start() throws Exception {
+        return start(500);
+    }
+
+    private CustomerWriteBehind start(int batchSize) throws Exception {
+        CustomerWriteBehind writeBehind = new CustomerWriteBehind(
+                customerDAO, transactionManager, directory, Duration.ofHours(1), batchSize);
+        writeBehind.start();
+        started.add(writeBehind);
+        return writeBehind;
+    }
+}
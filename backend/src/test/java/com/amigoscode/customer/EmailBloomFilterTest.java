@@ -0,0 +1,50 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailBloomFilterTest {
+
+    @Test
+    void mightContainEveryEmailThatWasPut() {
+        // Given
+        EmailBloomFilter underTest = new EmailBloomFilter(10_000, 0.01);
+        List<String> emails = IntStream.range(0, 10_000)
+                .mapToObj(i -> "customer" + i + "@gmail.com")
+                .toList();
+
+        // When
+        emails.forEach(underTest::put);
+
+        // Then
+        assertThat(emails).allMatch(underTest::mightContain);
+    }
+
+    @Test
+    void falsePositiveRateStaysCloseToConfiguredProbability() {
+        // Given
+        EmailBloomFilter underTest = new EmailBloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> underTest.put("customer" + i + "@gmail.com"));
+
+        // When
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> underTest.mightContain("unknown" + i + "@gmail.com"))
+                .count();
+
+        // Then
+        assertThat(falsePositives).isLessThan(200);
+    }
+
+    @Test
+    void sizeIsAboutTwelveMegabytesForTenMillionEmails() {
+        // When
+        EmailBloomFilter underTest = new EmailBloomFilter(10_000_000, 0.01);
+
+        // Then
+        assertThat(underTest.sizeInBytes()).isBetween(11_000_000L, 13_000_000L);
+    }
+}
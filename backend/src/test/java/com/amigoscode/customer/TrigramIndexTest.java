@@ -0,0 +1,59 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTest {
+
+    @Test
+    void extractsPaddedTrigramsPerWord() {
+        // When
+        Set<String> actual = TrigramIndex.trigrams("Al-Bo");
+
+        // Then
+        assertThat(actual).containsExactlyInAnyOrder("  a", " al", "al ", "  b", " bo", "bo ");
+    }
+
+    @Test
+    void candidatesShareATrigramWithTheQuery() {
+        // Given
+        TrigramIndex underTest = new TrigramIndex();
+        underTest.add(1L, "jamila", "jamila@gmail.com");
+        underTest.add(2L, "alex", "alex@gmail.com");
+
+        // When
+        Set<Long> actual = underTest.candidates(TrigramIndex.trigrams("jam"));
+
+        // Then
+        assertThat(actual).containsExactly(1L);
+    }
+
+    @Test
+    void removedIdsAreNoLongerCandidates() {
+        // Given
+        TrigramIndex underTest = new TrigramIndex();
+        underTest.add(1L, "jamila");
+        underTest.add(2L, "jamal");
+
+        // When
+        underTest.remove(1L, "jamila");
+
+        // Then
+        assertThat(underTest.candidates(TrigramIndex.trigrams("jam"))).containsExactly(2L);
+    }
+
+    @Test
+    void wordSimilarityIsTheShareOfQueryTrigramsFound() {
+        // Given
+        Set<String> query = TrigramIndex.trigrams("jam");
+
+        // When
+        double actual = TrigramIndex.wordSimilarity(query, "jamila mcgee");
+
+        // Then
+        assertThat(actual).isEqualTo(0.75);
+    }
+}
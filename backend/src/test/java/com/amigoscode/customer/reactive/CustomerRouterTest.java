@@ -0,0 +1,177 @@
+package com.amigoscode.customer.reactive;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerQuery;
+import com.amigoscode.customer.Gender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerRouterTest {
+
+    private static final String CUSTOMER_URI = "/api/v1/customers";
+
+    private ReactiveCustomerDAO customerDAO;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        customerDAO = mock(ReactiveCustomerDAO.class);
+        CustomerHandler handler = new CustomerHandler(
+                new ReactiveCustomerService(customerDAO), new ObjectMapper(), 50, 20);
+        webTestClient = WebTestClient.bindToRouterFunction(new CustomerRouter().customerRoutes(handler)).build();
+    }
+
+    @Test
+    void getCustomersPassesTheFiltersToTheDAO() {
+        // Given
+        when(customerDAO.selectCustomers(any())).thenReturn(Flux.empty());
+
+        // When
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "?name=ja&minAge=18&gender=FEMALE&sort=AGE&direction=DESC")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // Then
+        ArgumentCaptor<CustomerQuery> query = ArgumentCaptor.forClass(CustomerQuery.class);
+        verify(customerDAO).selectCustomers(query.capture());
+        assertThat(query.getValue()).isEqualTo(new CustomerQuery(
+                "ja", null, 18, null, Gender.FEMALE, CustomerQuery.SortField.AGE, CustomerQuery.Direction.DESC));
+    }
+
+    @Test
+    void getCustomersRejectsAnUnknownSortField() {
+        // When
+        // Then
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "?sort=height")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+        verify(customerDAO, never()).selectCustomers(any());
+    }
+
+    @Test
+    void getCustomersByIdsKeepsTheRequestOrderAndListsTheMissingIds() {
+        // Given
+        Customer first = new Customer(1L, "foo", "foo@gmail.com", 20, Gender.MALE, 0L);
+        Customer third = new Customer(3L, "bar", "bar@gmail.com", 30, Gender.FEMALE, 0L);
+        when(customerDAO.selectCustomersByIds(any())).thenReturn(Flux.just(first, third));
+
+        // When
+        // Then
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "?ids=3,2&ids=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.customers.length()").isEqualTo(2)
+                .jsonPath("$.customers[0].id").isEqualTo(3)
+                .jsonPath("$.customers[1].id").isEqualTo(1)
+                .jsonPath("$.missingIds.length()").isEqualTo(1)
+                .jsonPath("$.missingIds[0]").isEqualTo(2);
+    }
+
+    @Test
+    void batchGetReadsTheIdsFromTheBody() {
+        // Given
+        Customer customer = new Customer(1L, "foo", "foo@gmail.com", 20, Gender.MALE, 0L);
+        when(customerDAO.selectCustomersByIds(any())).thenReturn(Flux.just(customer));
+
+        // When
+        // Then
+        webTestClient.post()
+                .uri(CUSTOMER_URI + "/batch-get")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(1L, 2L))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.customers[0].id").isEqualTo(1)
+                .jsonPath("$.missingIds[0]").isEqualTo(2);
+    }
+
+    @Test
+    void pageIsTaggedWithABodyHashAndRevalidates() {
+        // Given
+        Customer customer = new Customer(1L, "foo", "foo@gmail.com", 20, Gender.MALE, 0L);
+        when(customerDAO.selectCustomerPage(0L, 1)).thenReturn(Flux.just(customer));
+
+        // When
+        String eTag = webTestClient.get()
+                .uri(CUSTOMER_URI + "/page?size=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.nextCursor").isEqualTo(1)
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        // Then
+        assertThat(eTag).isNotNull();
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/page?size=1")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+    }
+
+    @Test
+    void searchRejectsAShortQuery() {
+        // When
+        // Then
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/search?q=ja")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+        verify(customerDAO, never()).searchCustomers(any(), anyInt());
+    }
+
+    @Test
+    void streamWritesOneCustomerPerLine() {
+        // Given
+        when(customerDAO.selectAllCustomers()).thenReturn(Flux.just(
+                new Customer(1L, "foo", "foo@gmail.com", 20, Gender.MALE, 0L),
+                new Customer(2L, "bar", "bar@gmail.com", 30, Gender.FEMALE, 0L)));
+
+        // When
+        String body = webTestClient.get()
+                .uri(CUSTOMER_URI + "/stream")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        // Then
+        assertThat(body).isNotNull();
+        assertThat(body.lines()).hasSize(2);
+    }
+}
@@ -9,6 +9,8 @@ import com.github.javafaker.Name;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
@@ -71,7 +73,7 @@ public class CustomerIntegrationTest {
                 .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id")
                 .contains(expectedCustomer);
 
-        Integer id = allCustomers.stream()
+        Long id = allCustomers.stream()
                 .filter(c -> c.getEmail().equals(email))
                 .map(Customer::getId)
                 .findFirst()
@@ -127,7 +129,7 @@ public class CustomerIntegrationTest {
                 .getResponseBody();
 
 
-        Integer id = allCustomers.stream()
+        Long id = allCustomers.stream()
                 .filter(c -> c.getEmail().equals(email))
                 .map(Customer::getId)
                 .findFirst()
@@ -186,7 +188,7 @@ public class CustomerIntegrationTest {
                 .returnResult()
                 .getResponseBody();
 
-        Integer id = allCustomers.stream()
+        Long id = allCustomers.stream()
                 .filter(c -> c.getEmail().equals(email))
                 .map(Customer::getId)
                 .findFirst()
@@ -217,4 +219,189 @@ public class CustomerIntegrationTest {
                 .expectBody(Customer.class)
                 .isEqualTo(expectedCustomer);
     }
+
+    @Test
+    void canRevalidateCustomerWithETag() {
+        // create registration request
+        Faker faker = new Faker();
+        Name fakerName = faker.name();
+
+        String email = fakerName.lastName() + "-" + UUID.randomUUID() + "@gmail.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                fakerName.fullName(), email, 30, Gender.FEMALE
+        );
+
+        // send a post request
+        webTestClient.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        Long id = webTestClient.get()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectBodyList(Customer.class)
+                .returnResult()
+                .getResponseBody()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        // get customer by id and remember its ETag
+        String eTag = webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Customer.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(eTag).isNotNull();
+
+        // revalidate unchanged customer
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        // update customer
+        webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 31)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // revalidate changed customer
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .value("ETag", value -> assertThat(value).isNotEqualTo(eTag));
+    }
+
+    @Test
+    void onlyBoundedCustomerListsAreTaggedWithABodyHash() {
+        // the unpaginated list is not buffered for hashing
+        webTestClient.get()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(HttpHeaders.ETAG);
+
+        // a page is, and revalidates
+        String eTag = webTestClient.get()
+                .uri(CUSTOMER_URI + "/page?size=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(eTag).isNotNull();
+
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/page?size=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+    }
+
+    @Test
+    void canUpdateCustomerConditionallyWithIfMatch() {
+        // create registration request
+        Faker faker = new Faker();
+        Name fakerName = faker.name();
+
+        String email = fakerName.lastName() + "-" + UUID.randomUUID() + "@gmail.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                fakerName.fullName(), email, 30, Gender.FEMALE
+        );
+
+        // send a post request
+        webTestClient.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        Long id = webTestClient.get()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectBodyList(Customer.class)
+                .returnResult()
+                .getResponseBody()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        String eTag = webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .returnResult(Customer.class)
+                .getResponseHeaders()
+                .getETag();
+
+        // update based on the current version
+        webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 31)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // a second update based on the same, now stale, version
+        webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 32)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        // an If-Match that cannot be one of ours
+        webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "W/" + eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 32)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
 }
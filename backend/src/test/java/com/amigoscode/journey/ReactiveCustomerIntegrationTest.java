@@ -0,0 +1,10 @@
+package com.amigoscode.journey;
+
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Runs the customer journeys against the WebFlux/R2DBC endpoints.
+ */
+@ActiveProfiles("reactive")
+public class ReactiveCustomerIntegrationTest extends CustomerIntegrationTest {
+}